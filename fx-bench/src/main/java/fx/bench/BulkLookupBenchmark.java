@@ -0,0 +1,98 @@
+package fx.bench;
+
+import fx.Staff;
+import fx.StaffRepository;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resolving a list of IDs, nine in ten of which exist: one point lookup per ID
+ * against StaffRepository.findByIds with chunked IN lists. Scores are per list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BulkLookupBenchmark {
+
+    static final int SEEDED_ROWS = 10_000;
+
+    // Lists rotated through, so H2 never serves a repeated query from its result cache
+    static final int LISTS = 64;
+
+    @Param({ "10", "100", "1000" })
+    int ids;
+
+    EmbeddedDatabase database;
+    Connection connection;
+    List<List<String>> lists;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new EmbeddedDatabase(1);
+        database.seedStaff(SEEDED_ROWS);
+        connection = database.getPool().getConnection();
+    }
+
+    @Setup(Level.Iteration)
+    public void pickIds() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        lists = new ArrayList<>(LISTS);
+        for (int n = 0; n < LISTS; n++) {
+            List<String> list = new ArrayList<>(ids);
+            for (int i = 0; i < ids; i++) {
+                // Every tenth ID is past the seeded range and misses
+                list.add(EmbeddedDatabase.id((i % 10 == 9 ? SEEDED_ROWS : 0) + random.nextInt(SEEDED_ROWS)));
+            }
+            lists.add(list);
+        }
+    }
+
+    private List<String> nextList() {
+        next = (next + 1) % LISTS;
+        return lists.get(next);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+        database.close();
+    }
+
+    @Benchmark
+    public int perIdLoop() throws SQLException {
+        int found = 0;
+        for (String id : nextList()) {
+            Staff staff = StaffRepository.find(connection, id);
+            if (staff != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int chunkedInList() throws SQLException {
+        return StaffRepository.findByIds(connection, nextList(), StaffRepository.DEFAULT_LOOKUP_CHUNK, records -> { });
+    }
+}
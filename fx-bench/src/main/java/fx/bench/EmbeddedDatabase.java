@@ -0,0 +1,74 @@
+package fx.bench;
+
+import fx.BatchBenchmark;
+import fx.ConnectionPool;
+import fx.DataGenerator;
+import fx.Staff;
+import fx.StaffGenerator;
+import fx.StaffRepository;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-process H2 database in MySQL compatibility mode with the Staff and Temp
+ * tables, so the data access code can be benchmarked without a MySQL server.
+ */
+final class EmbeddedDatabase implements AutoCloseable {
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private final ConnectionPool pool;
+
+    EmbeddedDatabase(int poolSize) throws SQLException {
+        // A fresh named in-memory database per instance, kept alive until the pool closes
+        String url = "jdbc:h2:mem:bench" + COUNTER.incrementAndGet() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        pool = new ConnectionPool(url, "sa", "", 1, poolSize);
+        try (Connection connection = pool.getConnection()) {
+            StaffRepository.createTable(connection);
+            BatchBenchmark.createTable(connection);
+        }
+    }
+
+    ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Inserts generated staff records with IDs id(0) .. id(count - 1)
+     */
+    void seedStaff(int count) throws SQLException {
+        try (Connection connection = pool.getConnection();
+                PreparedStatement statement = connection.prepareStatement(StaffRepository.INSERT_SQL)) {
+            connection.setAutoCommit(false);
+            StaffGenerator generator = new StaffGenerator(DataGenerator.DEFAULT_SEED, 0);
+            for (int i = 0; i < count; i++) {
+                StaffRepository.bindInsert(statement, generator.next());
+                statement.addBatch();
+                if (i % 1000 == 999) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+            connection.commit();
+        }
+    }
+
+    /**
+     * The nine-character ID of the n-th seeded record
+     */
+    static String id(int n) {
+        return StaffGenerator.id(n);
+    }
+
+    static Staff staff(String id, int n) {
+        return new Staff(id, "Last" + n, "First" + n, "M", n + " Main St", "Savannah", "GA",
+                "9125550" + String.format("%03d", n % 1000), "staff" + n + "@example.com");
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
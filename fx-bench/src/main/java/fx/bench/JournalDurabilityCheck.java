@@ -0,0 +1,254 @@
+package fx.bench;
+
+import fx.Staff;
+import fx.StaffJournal;
+import fx.StaffRepository;
+import fx.StaffWriteBehind;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.h2.api.Trigger;
+
+/**
+ * Reproducible checks of the write-behind journal's crash paths, each in a fresh
+ * temporary directory and, where the database is involved, a fresh H2 database:
+ *
+ * 1. A torn append: the tail of the last record is lost, as in a crash mid-write.
+ *    Reopening recovers the records before it, and a shorter record appended over
+ *    it is recovered on the next open without any remains of the torn one.
+ * 2. The checkpoint prefix rule: a save of an ID arrives while that ID is being
+ *    flushed. The checkpoint must stop at the flushed batch, so after a crash the
+ *    journal still replays the later save, and only that.
+ * 3. Compaction: a small journal that fills up many times while the database is
+ *    unreachable, so the two journal files take turns. The latest version of every
+ *    record survives, and exactly one of the files is a journal.
+ *
+ * Usage: java -cp fx-bench/target/benchmarks.jar fx.bench.JournalDurabilityCheck
+ * Prints one line per check and exits with status 1 if any fails.
+ */
+public final class JournalDurabilityCheck {
+
+    // Small enough to compact every few dozen saves
+    static final int SMALL_CAPACITY = 4096;
+
+    // A flush interval that keeps the flusher out of the way after its first run
+    static final long NO_FLUSH_MILLIS = 3_600_000;
+
+    private JournalDurabilityCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int failed = 0;
+        failed += run("torn append is recovered and cleared", JournalDurabilityCheck::tornAppend);
+        failed += run("save during a flush stays after the checkpoint", JournalDurabilityCheck::saveDuringFlush);
+        failed += run("compaction keeps the latest unflushed writes", JournalDurabilityCheck::compaction);
+        if (failed > 0) {
+            System.out.println(failed + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All checks passed");
+    }
+
+    /**
+     * One check against a fresh journal path
+     */
+    private interface Check {
+        void run(Path journalFile) throws Exception;
+    }
+
+    private static int run(String name, Check check) throws IOException {
+        Path directory = Files.createTempDirectory("staff-journal");
+        try {
+            check.run(directory.resolve("staff-journal.bin"));
+            System.out.println("ok      " + name);
+            return 0;
+        } catch (Exception | AssertionError ex) {
+            System.out.println("FAILED  " + name + ": " + ex);
+            return 1;
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    static void tornAppend(Path file) throws IOException {
+        int beforeTorn;
+        int afterTorn;
+        try (StaffJournal journal = new StaffJournal(file, StaffJournal.DEFAULT_CAPACITY)) {
+            for (int i = 0; i < 3; i++) {
+                journal.append(EmbeddedDatabase.staff(EmbeddedDatabase.id(i), i), new ArrayList<>());
+            }
+            beforeTorn = journal.getUsedBytes();
+            Staff longer = new Staff(EmbeddedDatabase.id(3), "Lastname", "Firstname", "M",
+                    "1234 Long Avenue", "Savannah", "GA", "9125550123", "a.much.longer.address@example.com");
+            journal.append(longer, new ArrayList<>());
+            afterTorn = journal.getUsedBytes();
+        }
+        // The crash lost the second half of the last record
+        zero(file, beforeTorn + (afterTorn - beforeTorn) / 2, afterTorn);
+
+        int afterShort;
+        try (StaffJournal journal = new StaffJournal(file, StaffJournal.DEFAULT_CAPACITY)) {
+            check(journal.getRecovered().size() == 3, "expected 3 records before the torn one, found "
+                    + journal.getRecovered().size());
+            check(journal.getUsedBytes() == beforeTorn, "appends must continue where the torn record began");
+            journal.append(new Staff(EmbeddedDatabase.id(4), "L", "F", null, null, null, null, null, null),
+                    new ArrayList<>());
+            afterShort = journal.getUsedBytes();
+        }
+        check(afterShort < afterTorn, "the replacement record must be shorter than the torn one");
+        check(isZero(file, afterShort, afterTorn), "remains of the torn record follow the new one");
+
+        try (StaffJournal journal = new StaffJournal(file, StaffJournal.DEFAULT_CAPACITY)) {
+            List<StaffJournal.Entry> recovered = journal.getRecovered();
+            check(recovered.size() == 4, "expected 4 records, found " + recovered.size());
+            check(recovered.get(3).getStaff().getId().equals(EmbeddedDatabase.id(4)),
+                    "the last record must be the one appended after recovery");
+        }
+    }
+
+    static void saveDuringFlush(Path file) throws Exception {
+        Staff first = EmbeddedDatabase.staff(EmbeddedDatabase.id(0), 1);
+        Staff second = EmbeddedDatabase.staff(EmbeddedDatabase.id(1), 1);
+        Staff later = EmbeddedDatabase.staff(EmbeddedDatabase.id(0), 2);
+        try (EmbeddedDatabase database = new EmbeddedDatabase(2)) {
+            // Without a pool nothing is flushed until the stage is set
+            StaffWriteBehind writeBehind = new StaffWriteBehind(null, file, StaffJournal.DEFAULT_CAPACITY,
+                    NO_FLUSH_MILLIS, StaffWriteBehind.DEFAULT_BATCH_SIZE);
+            writeBehind.save(first);
+            writeBehind.save(second);
+
+            // While the batch is in the database, save a new version of its first ID and
+            // cut the connection, so the next flush fails as if the process had died
+            SaveDuringFlush.action = () -> {
+                writeBehind.save(later);
+                writeBehind.setPool(null);
+            };
+            try (Connection connection = database.getPool().getConnection();
+                    Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TRIGGER save_during_flush AFTER INSERT ON Staff FOR EACH ROW CALL '"
+                        + SaveDuringFlush.class.getName() + "'");
+            }
+            writeBehind.setPool(database.getPool());
+            writeBehind.close();
+            check(SaveDuringFlush.action == null, "the flush never reached the database");
+
+            try (Connection connection = database.getPool().getConnection()) {
+                check(first.getLastName().equals(StaffRepository.find(connection, first.getId()).getLastName()),
+                        "the flushed version of the first ID must be in the database");
+                check(StaffRepository.find(connection, second.getId()) != null, "the second ID must be flushed");
+            }
+        }
+
+        try (StaffJournal journal = new StaffJournal(file, StaffJournal.DEFAULT_CAPACITY)) {
+            List<StaffJournal.Entry> recovered = journal.getRecovered();
+            check(recovered.size() == 1, "expected only the later save to replay, found " + recovered.size());
+            check(recovered.get(0).getStaff().getLastName().equals(later.getLastName()),
+                    "the replayed record must be the later version");
+        }
+    }
+
+    static void compaction(Path file) throws Exception {
+        int ids = 5;
+        int saves = 400;
+        Staff[] latest = new Staff[ids];
+        StaffWriteBehind writeBehind = new StaffWriteBehind(null, file, SMALL_CAPACITY, NO_FLUSH_MILLIS,
+                StaffWriteBehind.DEFAULT_BATCH_SIZE);
+        for (int i = 0; i < saves; i++) {
+            latest[i % ids] = EmbeddedDatabase.staff(EmbeddedDatabase.id(i % ids), i);
+            writeBehind.save(latest[i % ids]);
+        }
+        // Without a database nothing is flushed, so the journal keeps everything
+        writeBehind.close();
+
+        Path sibling = file.resolveSibling(file.getFileName() + ".1");
+        check(Files.exists(sibling), "the journal never moved to its sibling file");
+        check(hasMagic(file) != hasMagic(sibling), "exactly one journal file must have the magic");
+
+        try (StaffJournal journal = new StaffJournal(file, SMALL_CAPACITY)) {
+            List<StaffJournal.Entry> recovered = journal.getRecovered();
+            check(recovered.size() == ids, "expected " + ids + " records, found " + recovered.size());
+            for (StaffJournal.Entry entry : recovered) {
+                Staff staff = entry.getStaff();
+                int index = Integer.parseInt(staff.getId());
+                check(staff.getLastName().equals(latest[index].getLastName()),
+                        "ID " + staff.getId() + " recovered an older version");
+            }
+        }
+    }
+
+    /**
+     * Runs the pending action once, from inside the flush's INSERT
+     */
+    public static class SaveDuringFlush implements Trigger {
+
+        /**
+         * Something to do while the flush is in the database
+         */
+        interface Action {
+            void run() throws IOException;
+        }
+
+        static volatile Action action;
+
+        @Override
+        public void fire(Connection connection, Object[] oldRow, Object[] newRow) throws SQLException {
+            Action pending = action;
+            action = null;
+            if (pending != null) {
+                try {
+                    pending.run();
+                } catch (IOException ex) {
+                    throw new SQLException(ex);
+                }
+            }
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    private static void zero(Path file, int from, int to) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(to - from), from);
+        }
+    }
+
+    private static boolean isZero(Path file, int from, int to) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(to - from);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.read(bytes, from);
+        }
+        for (int i = 0; i < bytes.limit(); i++) {
+            if (bytes.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasMagic(Path file) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.read(magic, 0);
+        }
+        return magic.getInt(0) == StaffJournal.MAGIC;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package fx.bench;
+
+import fx.JdbcMetrics;
+import fx.Staff;
+import fx.StaffRepository;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the JDBC instrumentation on the Staff point lookup: no metrics attached
+ * to the pool, metrics attached but disabled, and metrics recording.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MetricsOverheadBenchmark {
+
+    static final int SEEDED_ROWS = 10_000;
+
+    @Param({ "detached", "disabled", "enabled" })
+    String metrics;
+
+    EmbeddedDatabase database;
+    Connection connection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new EmbeddedDatabase(1);
+        database.seedStaff(SEEDED_ROWS);
+        if (!metrics.equals("detached")) {
+            database.getPool().setMetrics(new JdbcMetrics(metrics.equals("enabled")));
+        }
+        connection = database.getPool().getConnection();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+        database.close();
+    }
+
+    @Benchmark
+    public Staff pointLookup() throws SQLException {
+        int n = ThreadLocalRandom.current().nextInt(SEEDED_ROWS);
+        return StaffRepository.find(connection, EmbeddedDatabase.id(n));
+    }
+}
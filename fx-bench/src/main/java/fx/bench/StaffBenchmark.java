@@ -0,0 +1,91 @@
+package fx.bench;
+
+import fx.Staff;
+import fx.StaffRepository;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single-record Staff operations through StaffRepository on a pooled connection:
+ * point lookup by ID, insert of a new ID and update of an existing ID.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StaffBenchmark {
+
+    static final int SEEDED_ROWS = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class Database {
+        EmbeddedDatabase database;
+
+        // New IDs for the insert benchmark start after the seeded ones
+        final AtomicInteger nextId = new AtomicInteger(SEEDED_ROWS);
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            database = new EmbeddedDatabase(8);
+            database.seedStaff(SEEDED_ROWS);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            database.close();
+        }
+    }
+
+    /**
+     * Each benchmark thread keeps one borrowed connection, so the pool is not measured
+     */
+    @State(Scope.Thread)
+    public static class Session {
+        Connection connection;
+
+        @Setup(Level.Trial)
+        public void setUp(Database db) throws SQLException {
+            connection = db.database.getPool().getConnection();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public Staff pointLookup(Session session) throws SQLException {
+        int n = ThreadLocalRandom.current().nextInt(SEEDED_ROWS);
+        return StaffRepository.find(session.connection, EmbeddedDatabase.id(n));
+    }
+
+    @Benchmark
+    public int insert(Database db, Session session) throws SQLException {
+        int n = db.nextId.getAndIncrement();
+        return StaffRepository.insert(session.connection, EmbeddedDatabase.staff(EmbeddedDatabase.id(n), n));
+    }
+
+    @Benchmark
+    public int update(Session session) throws SQLException {
+        int n = ThreadLocalRandom.current().nextInt(SEEDED_ROWS);
+        Staff changed = EmbeddedDatabase.staff(EmbeddedDatabase.id(n), n + SEEDED_ROWS);
+        return StaffRepository.update(session.connection, changed);
+    }
+}
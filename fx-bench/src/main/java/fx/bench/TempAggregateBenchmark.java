@@ -0,0 +1,147 @@
+package fx.bench;
+
+import fx.BatchBenchmark;
+import fx.DataGenerator;
+import fx.TempColumns;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The same aggregates over Temp answered by the in-memory {@link TempColumns} and as
+ * SQL: sum/min/max of a column, the same restricted to a range of another column, a
+ * range count and a 20-bucket histogram. The columns are generated from the seed the
+ * table was filled with, so both sides see the same values. Columnar scores are taken
+ * on the common fork-join pool (parallelism 0) and on a single thread.
+ *
+ * The default of one million rows keeps the H2 setup short; the columnar side alone
+ * scales to tens of millions with e.g. -p rows=20000000 and a larger -Xmx.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TempAggregateBenchmark {
+
+    static final long SEED = DataGenerator.DEFAULT_SEED;
+    static final int BUCKETS = 20;
+
+    // The middle half of the uniform values
+    static final double LOW = 0.25;
+    static final double HIGH = 0.75;
+
+    @State(Scope.Benchmark)
+    public static class Columns {
+        @Param({ "1000000" })
+        int rows;
+
+        @Param({ "0", "1" })
+        int parallelism;
+
+        TempColumns columns;
+        ForkJoinPool pool;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            columns = TempColumns.generate(new DataGenerator(SEED, DataGenerator.uniform()), rows);
+            if (parallelism > 0) {
+                pool = new ForkJoinPool(parallelism);
+                columns.setPool(pool);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Table {
+        @Param({ "1000000" })
+        int rows;
+
+        EmbeddedDatabase database;
+        Connection connection;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            database = new EmbeddedDatabase(1);
+            connection = database.getPool().getConnection();
+            connection.setAutoCommit(false);
+            BatchBenchmark.insertRows(connection, BatchBenchmark.Strategy.BATCH, rows, 10_000,
+                    new DataGenerator(SEED, DataGenerator.uniform()));
+            connection.commit();
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement()) {
+                // H2 would otherwise hand back the previous result of an unchanged query
+                statement.execute("SET OPTIMIZE_REUSE_RESULTS 0");
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            connection.close();
+            database.close();
+        }
+    }
+
+    @Benchmark
+    public TempColumns.Summary summaryColumnar(Columns state) {
+        return state.columns.summarize(TempColumns.Column.NUM1);
+    }
+
+    @Benchmark
+    public TempColumns.Summary summarySql(Table state) throws SQLException {
+        return TempColumns.querySummary(state.connection, TempColumns.Column.NUM1);
+    }
+
+    @Benchmark
+    public TempColumns.Summary filteredColumnar(Columns state) {
+        return state.columns.summarize(TempColumns.Column.NUM1, TempColumns.Column.NUM2, LOW, HIGH);
+    }
+
+    @Benchmark
+    public TempColumns.Summary filteredSql(Table state) throws SQLException {
+        return TempColumns.querySummary(state.connection, TempColumns.Column.NUM1, TempColumns.Column.NUM2, LOW,
+                HIGH);
+    }
+
+    @Benchmark
+    public long countColumnar(Columns state) {
+        return state.columns.count(TempColumns.Column.NUM2, LOW, HIGH);
+    }
+
+    @Benchmark
+    public long countSql(Table state) throws SQLException {
+        return TempColumns.queryCount(state.connection, TempColumns.Column.NUM2, LOW, HIGH);
+    }
+
+    @Benchmark
+    public TempColumns.Histogram histogramColumnar(Columns state) {
+        return state.columns.histogram(TempColumns.Column.NUM1, 0, 1, BUCKETS);
+    }
+
+    @Benchmark
+    public TempColumns.Histogram histogramSql(Table state) throws SQLException {
+        return TempColumns.queryHistogram(state.connection, TempColumns.Column.NUM1, 0, 1, BUCKETS);
+    }
+}
@@ -0,0 +1,76 @@
+package fx.bench;
+
+import fx.BatchBenchmark;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Inserting rows into Temp the way Exercise35_01 does, batched at several batch
+ * sizes and one row at a time. Scores are per row, so the modes compare directly.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TempInsertBenchmark {
+
+    static final int ROWS = 1000;
+
+    @State(Scope.Thread)
+    public static class Table {
+        EmbeddedDatabase database;
+        Connection connection;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            database = new EmbeddedDatabase(1);
+            connection = database.getPool().getConnection();
+        }
+
+        // Keeps the in-memory table from growing for the whole trial
+        @Setup(Level.Invocation)
+        public void clear() throws SQLException {
+            BatchBenchmark.clearTable(connection);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            connection.close();
+            database.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Batch {
+        @Param({ "10", "100", "1000" })
+        int batchSize;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void batchInsert(Table table, Batch batch) throws SQLException {
+        BatchBenchmark.insertRows(table.connection, BatchBenchmark.Strategy.BATCH, ROWS, batch.batchSize);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void nonBatchInsert(Table table) throws SQLException {
+        BatchBenchmark.insertRows(table.connection, BatchBenchmark.Strategy.NON_BATCH, ROWS, 1);
+    }
+}
@@ -0,0 +1,110 @@
+package fx.bench;
+
+import fx.Staff;
+import fx.StaffRepository;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Saving Staff records whose ID may or may not exist yet: the insert-then-update
+ * flow of the form (INSERT, and UPDATE after a duplicate key error) against a
+ * single upsert statement, for single records and for batches of 1000.
+ * Scores are per record.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class UpsertBenchmark {
+
+    static final int SEEDED_ROWS = 10_000;
+    static final int BULK_ROWS = 1000;
+
+    // Share of saves that hit an existing ID
+    @Param({ "0", "50", "100" })
+    int percentExisting;
+
+    EmbeddedDatabase database;
+    Connection connection;
+    int nextId = SEEDED_ROWS;
+    int version;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        database = new EmbeddedDatabase(1);
+        database.seedStaff(SEEDED_ROWS);
+        connection = database.getPool().getConnection();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+        database.close();
+    }
+
+    private Staff nextRecord() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int n = random.nextInt(100) < percentExisting ? random.nextInt(SEEDED_ROWS) : nextId++;
+        // A new version each time so updates really change the row
+        return EmbeddedDatabase.staff(EmbeddedDatabase.id(n), n + ++version);
+    }
+
+    private static int insertThenUpdate(Connection connection, Staff staff) throws SQLException {
+        try {
+            return StaffRepository.insert(connection, staff);
+        } catch (SQLIntegrityConstraintViolationException ex) {
+            return StaffRepository.update(connection, staff);
+        }
+    }
+
+    @Benchmark
+    public int insertThenUpdate() throws SQLException {
+        return insertThenUpdate(connection, nextRecord());
+    }
+
+    @Benchmark
+    public StaffRepository.UpsertOutcome upsert() throws SQLException {
+        return StaffRepository.upsert(connection, nextRecord());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK_ROWS)
+    public int bulkInsertThenUpdate() throws SQLException {
+        int rows = 0;
+        for (int i = 0; i < BULK_ROWS; i++) {
+            rows += insertThenUpdate(connection, nextRecord());
+        }
+        return rows;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK_ROWS)
+    public StaffRepository.UpsertCounts bulkUpsert() throws SQLException {
+        List<Staff> records = new ArrayList<>(BULK_ROWS);
+        for (int i = 0; i < BULK_ROWS; i++) {
+            records.add(nextRecord());
+        }
+        return StaffRepository.upsertAll(connection, records, BULK_ROWS);
+    }
+}
@@ -1,8 +1,7 @@
 package fx;
 
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
@@ -13,26 +12,48 @@ import java.io.IOException;
  */
 public class App extends Application {
 
+    // Views loaded in the background once the first frame is up; -Dapp.preload=false turns this off
+    private static final String[] PRELOAD_VIEWS = { "secondary" };
+    private static final boolean PRELOAD = Boolean.parseBoolean(System.getProperty("app.preload", "true"));
+
+    // Each FXML view is parsed once; navigation reuses the cached root and controller
+    private static final ViewRegistry views = new ViewRegistry(App.class);
+
     private static Scene scene;
 
+    public App() {
+    }
+
     @Override
     public void start(Stage stage) throws IOException {
-        scene = new Scene(loadFXML("primary"), 640, 480);
+        scene = new Scene(views.get("primary").getRoot(), 640, 480);
         stage.setScene(scene);
+        if (PRELOAD) {
+            // Start preloading after the first pulse so it does not delay the first frame
+            Runnable preload = new Runnable() {
+                private boolean started;
+
+                @Override
+                public void run() {
+                    if (!started) {
+                        started = true;
+                        views.preload(PRELOAD_VIEWS);
+                        // Not removed while the scene is iterating its listeners
+                        Platform.runLater(() -> scene.removePostLayoutPulseListener(this));
+                    }
+                }
+            };
+            scene.addPostLayoutPulseListener(preload);
+        }
         stage.show();
     }
 
     static void setRoot(String fxml) throws IOException {
-        scene.setRoot(loadFXML(fxml));
-    }
-
-    private static Parent loadFXML(String fxml) throws IOException {
-        FXMLLoader fxmlLoader = new FXMLLoader(App.class.getResource(fxml + ".fxml"));
-        return fxmlLoader.load();
+        views.show(scene, fxml);
     }
 
     public static void main(String[] args) {
         launch();
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,457 @@
+package fx;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Benchmark engine for inserting rows into the Temp(num1, num2, num3) table.
+ * For every selected strategy and batch size it runs warm-up iterations, then
+ * measured iterations timed with System.nanoTime(), and reports min, median, p95,
+ * p99 and rows per second. The table is emptied before every iteration, outside
+ * the timed region. Row values come from a {@link DataGenerator} restarted from the
+ * configured seed for every iteration, so all runs insert the same data; the time
+ * spent generating values is reported separately. The engine does not depend on
+ * JavaFX, so it can run headless.
+ */
+public class BatchBenchmark {
+
+    /**
+     * Ways of getting rows into Temp
+     */
+    public enum Strategy {
+        NON_BATCH("Non-batch", "one executeUpdate() per row"),
+        BATCH("Batch", "addBatch()/executeBatch() per batch"),
+        MULTI_ROW_VALUES("Multi-row VALUES", "one INSERT ... VALUES (...),(...) per batch"),
+        REWRITE_BATCH("Rewritten batch", "JDBC batch with rewriteBatchedStatements=true"),
+        TRANSACTION("Batch in transaction", "JDBC batch with autocommit off, one commit");
+
+        private final String label;
+        private final String description;
+
+        Strategy(String label, String description) {
+            this.label = label;
+            this.description = description;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * Whether the strategy groups rows, so a batch-size sweep applies to it
+         */
+        public boolean isBatched() {
+            return this != NON_BATCH;
+        }
+    }
+
+    public static final String INSERT_SQL = "INSERT INTO Temp (num1, num2, num3) VALUES (?, ?, ?)";
+
+    // The id orders the rows, so a range of them can be read back by key
+    public static final String CREATE_TABLE_SQL =
+            "CREATE TABLE Temp(id BIGINT AUTO_INCREMENT PRIMARY KEY, num1 DOUBLE, num2 DOUBLE, num3 DOUBLE)";
+
+    // MySQL allows at most 65535 placeholders in one statement
+    private static final int MAX_VALUES_ROWS = 65535 / 3;
+
+    /**
+     * What to run
+     */
+    public static class Config {
+        private int rows = 1000;
+        private int[] batchSizes = { 1000 };
+        private int warmupIterations = 1;
+        private int measuredIterations = 5;
+        private Set<Strategy> strategies = EnumSet.of(Strategy.NON_BATCH, Strategy.BATCH);
+        private long seed = DataGenerator.DEFAULT_SEED;
+        private DataGenerator.Distribution distribution = DataGenerator.uniform();
+
+        public Config() {
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public void setRows(int rows) {
+            if (rows < 1) {
+                throw new IllegalArgumentException("Row count must be positive");
+            }
+            this.rows = rows;
+        }
+
+        public int[] getBatchSizes() {
+            return batchSizes.clone();
+        }
+
+        public void setBatchSizes(int... batchSizes) {
+            if (batchSizes.length == 0 || Arrays.stream(batchSizes).anyMatch(size -> size < 1)) {
+                throw new IllegalArgumentException("Batch sizes must be positive");
+            }
+            this.batchSizes = batchSizes.clone();
+        }
+
+        public int getWarmupIterations() {
+            return warmupIterations;
+        }
+
+        public void setWarmupIterations(int warmupIterations) {
+            if (warmupIterations < 0) {
+                throw new IllegalArgumentException("Warm-up iterations cannot be negative");
+            }
+            this.warmupIterations = warmupIterations;
+        }
+
+        public int getMeasuredIterations() {
+            return measuredIterations;
+        }
+
+        public void setMeasuredIterations(int measuredIterations) {
+            if (measuredIterations < 1) {
+                throw new IllegalArgumentException("Measured iterations must be positive");
+            }
+            this.measuredIterations = measuredIterations;
+        }
+
+        public Set<Strategy> getStrategies() {
+            return EnumSet.copyOf(strategies);
+        }
+
+        public void setStrategies(Set<Strategy> strategies) {
+            if (strategies.isEmpty()) {
+                throw new IllegalArgumentException("Select at least one strategy");
+            }
+            this.strategies = EnumSet.copyOf(strategies);
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public void setSeed(long seed) {
+            this.seed = seed;
+        }
+
+        public DataGenerator.Distribution getDistribution() {
+            return distribution;
+        }
+
+        public void setDistribution(DataGenerator.Distribution distribution) {
+            this.distribution = distribution;
+        }
+
+        /**
+         * Generator for the row values of one iteration
+         */
+        public DataGenerator newGenerator() {
+            return new DataGenerator(seed, distribution);
+        }
+
+        /**
+         * Parses a comma-separated list of batch sizes such as "100, 1000, 10000"
+         */
+        public static int[] parseBatchSizes(String text) {
+            return Arrays.stream(text.split(","))
+                    .map(String::trim)
+                    .filter(s -> !s.isEmpty())
+                    .mapToInt(Integer::parseInt)
+                    .toArray();
+        }
+    }
+
+    /**
+     * Timings of the measured iterations of one strategy at one batch size
+     */
+    public static class Result {
+        private final Strategy strategy;
+        private final int batchSize;
+        private final int rows;
+        private final long[] sortedNanos;
+        private final long[] sortedGenerateNanos;
+
+        Result(Strategy strategy, int batchSize, int rows, long[] nanos, long[] generateNanos) {
+            this.strategy = strategy;
+            this.batchSize = batchSize;
+            this.rows = rows;
+            this.sortedNanos = nanos.clone();
+            this.sortedGenerateNanos = generateNanos.clone();
+            Arrays.sort(this.sortedNanos);
+            Arrays.sort(this.sortedGenerateNanos);
+        }
+
+        public Strategy getStrategy() {
+            return strategy;
+        }
+
+        /**
+         * Rows per batch, or 1 for the non-batch strategy
+         */
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getIterations() {
+            return sortedNanos.length;
+        }
+
+        public double getMinMillis() {
+            return sortedNanos[0] / 1e6;
+        }
+
+        public double getMedianMillis() {
+            return percentileMillis(50);
+        }
+
+        public double getP95Millis() {
+            return percentileMillis(95);
+        }
+
+        public double getP99Millis() {
+            return percentileMillis(99);
+        }
+
+        /**
+         * Median time spent generating row values, included in the iteration times
+         */
+        public double getGenerateMillis() {
+            return sortedGenerateNanos[(sortedGenerateNanos.length - 1) / 2] / 1e6;
+        }
+
+        /**
+         * Throughput at the median iteration time
+         */
+        public double getRowsPerSecond() {
+            return rows / (getMedianMillis() / 1000);
+        }
+
+        /**
+         * Nearest-rank percentile of the measured iteration times
+         */
+        public double percentileMillis(double percentile) {
+            int rank = (int) Math.ceil(percentile / 100 * sortedNanos.length);
+            return sortedNanos[Math.max(0, Math.min(sortedNanos.length - 1, rank - 1))] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-20s batch=%-6d min=%9.2f ms  median=%9.2f ms  p95=%9.2f ms  "
+                    + "p99=%9.2f ms  %,12.0f rows/s  generate=%.2f ms",
+                    strategy.getLabel(), batchSize, getMinMillis(), getMedianMillis(),
+                    getP95Millis(), getP99Millis(), getRowsPerSecond(), getGenerateMillis());
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final ConnectionPool rewritePool;
+    private volatile boolean cancelled;
+
+    /**
+     * The rewrite pool must open connections with rewriteBatchedStatements=true;
+     * it may be null, in which case the rewritten-batch strategy is skipped
+     */
+    public BatchBenchmark(ConnectionPool pool, ConnectionPool rewritePool) {
+        this.pool = pool;
+        this.rewritePool = rewritePool;
+    }
+
+    /**
+     * Stops the benchmark after the current iteration
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Runs the whole matrix, logging each result as it completes
+     */
+    public List<Result> run(Config config, Consumer<String> log) throws SQLException {
+        List<Result> results = new ArrayList<>();
+        for (Strategy strategy : config.getStrategies()) {
+            if (strategy == Strategy.REWRITE_BATCH && rewritePool == null) {
+                log.accept(strategy.getLabel() + ": skipped, no rewriteBatchedStatements connection");
+                continue;
+            }
+            int[] batchSizes = strategy.isBatched() ? config.getBatchSizes() : new int[] { 1 };
+            for (int batchSize : batchSizes) {
+                for (int i = 0; i < config.getWarmupIterations() && !cancelled; i++) {
+                    runOnce(strategy, config.getRows(), batchSize, config.newGenerator());
+                }
+                long[] nanos = new long[config.getMeasuredIterations()];
+                long[] generateNanos = new long[nanos.length];
+                for (int i = 0; i < nanos.length; i++) {
+                    if (cancelled) {
+                        return results;
+                    }
+                    DataGenerator generator = config.newGenerator();
+                    nanos[i] = runOnce(strategy, config.getRows(), batchSize, generator);
+                    generateNanos[i] = generator.getGenerateNanos();
+                }
+                Result result = new Result(strategy, batchSize, config.getRows(), nanos, generateNanos);
+                results.add(result);
+                log.accept(result.toString());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Empties Temp, then inserts the rows with the strategy and returns the elapsed nanoseconds
+     */
+    public long runOnce(Strategy strategy, int rows, int batchSize) throws SQLException {
+        return runOnce(strategy, rows, batchSize, new DataGenerator());
+    }
+
+    /**
+     * Like runOnce(strategy, rows, batchSize), taking the values from the generator
+     */
+    public long runOnce(Strategy strategy, int rows, int batchSize, DataGenerator generator)
+            throws SQLException {
+        ConnectionPool source = strategy == Strategy.REWRITE_BATCH ? rewritePool : pool;
+        try (Connection connection = source.getConnection()) {
+            clearTable(connection);
+
+            long startTime = System.nanoTime();
+            insertRows(connection, strategy, rows, batchSize, generator);
+            return System.nanoTime() - startTime;
+        }
+    }
+
+    /**
+     * Inserts the rows into Temp with the strategy on the given connection.
+     * For REWRITE_BATCH the connection itself must have rewriteBatchedStatements=true.
+     */
+    public static void insertRows(Connection connection, Strategy strategy, int rows, int batchSize)
+            throws SQLException {
+        insertRows(connection, strategy, rows, batchSize, new DataGenerator());
+    }
+
+    /**
+     * Like insertRows(connection, strategy, rows, batchSize), taking the values from the generator
+     */
+    public static void insertRows(Connection connection, Strategy strategy, int rows, int batchSize,
+            DataGenerator generator) throws SQLException {
+        switch (strategy) {
+            case NON_BATCH:
+                insertOneByOne(connection, rows, generator);
+                break;
+            case MULTI_ROW_VALUES:
+                insertMultiRow(connection, rows, Math.min(batchSize, MAX_VALUES_ROWS), generator);
+                break;
+            case TRANSACTION:
+                connection.setAutoCommit(false);
+                insertBatched(connection, rows, batchSize, generator);
+                connection.commit();
+                connection.setAutoCommit(true);
+                break;
+            default:
+                insertBatched(connection, rows, batchSize, generator);
+                break;
+        }
+    }
+
+    /**
+     * Drops and recreates Temp
+     */
+    public static void createTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DROP TABLE IF EXISTS Temp");
+            statement.executeUpdate(CREATE_TABLE_SQL);
+        }
+    }
+
+    /**
+     * Removes every row from Temp
+     */
+    public static void clearTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            // TRUNCATE is much faster than DELETE once there are millions of rows
+            statement.executeUpdate("TRUNCATE TABLE Temp");
+        }
+    }
+
+    private static void insertOneByOne(Connection connection, int rows, DataGenerator generator)
+            throws SQLException {
+        double[] row = new double[3];
+        try (PreparedStatement pstmt = connection.prepareStatement(INSERT_SQL)) {
+            for (int i = 0; i < rows; i++) {
+                generator.fill(row, 3);
+                pstmt.setDouble(1, row[0]);
+                pstmt.setDouble(2, row[1]);
+                pstmt.setDouble(3, row[2]);
+                pstmt.executeUpdate();
+            }
+        }
+    }
+
+    static void insertBatched(Connection connection, int rows, int batchSize, DataGenerator generator)
+            throws SQLException {
+        // Each batch is generated into one reused array, then bound
+        double[] values = new double[Math.min(batchSize, rows) * 3];
+        try (PreparedStatement pstmt = connection.prepareStatement(INSERT_SQL)) {
+            for (int offset = 0; offset < rows; offset += batchSize) {
+                int batchRows = Math.min(batchSize, rows - offset);
+                generator.fill(values, batchRows * 3);
+                for (int i = 0; i < batchRows * 3; i += 3) {
+                    pstmt.setDouble(1, values[i]);
+                    pstmt.setDouble(2, values[i + 1]);
+                    pstmt.setDouble(3, values[i + 2]);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+        }
+    }
+
+    private static void insertMultiRow(Connection connection, int rows, int rowsPerStatement,
+            DataGenerator generator) throws SQLException {
+        int fullStatements = rows / rowsPerStatement;
+        int remainder = rows % rowsPerStatement;
+        double[] values = new double[Math.min(rowsPerStatement, rows) * 3];
+        if (fullStatements > 0) {
+            try (PreparedStatement pstmt = connection.prepareStatement(multiRowSql(rowsPerStatement))) {
+                for (int s = 0; s < fullStatements; s++) {
+                    bindRows(pstmt, values, rowsPerStatement, generator);
+                    pstmt.executeUpdate();
+                }
+            }
+        }
+        if (remainder > 0) {
+            try (PreparedStatement pstmt = connection.prepareStatement(multiRowSql(remainder))) {
+                bindRows(pstmt, values, remainder, generator);
+                pstmt.executeUpdate();
+            }
+        }
+    }
+
+    private static void bindRows(PreparedStatement pstmt, double[] values, int rows, DataGenerator generator)
+            throws SQLException {
+        generator.fill(values, rows * 3);
+        for (int i = 0; i < rows * 3; i++) {
+            pstmt.setDouble(i + 1, values[i]);
+        }
+    }
+
+    static String multiRowSql(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO Temp (num1, num2, num3) VALUES ");
+        for (int r = 0; r < rows; r++) {
+            sql.append(r == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+        }
+        return sql.toString();
+    }
+}
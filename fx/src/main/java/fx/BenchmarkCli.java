@@ -0,0 +1,232 @@
+package fx;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Headless entry point for the batch insert benchmark. It runs the same matrix
+ * as the Run Benchmark button of Exercise35_01 without loading any JavaFX class,
+ * so it can be scripted on machines without a display.
+ *
+ * Settings come from an optional properties file (--config=FILE) and are
+ * overridden by --key=value arguments. Progress goes to stderr and the results
+ * are written as JSON to stdout, or to the file named by --output.
+ *
+ * Usage: java -cp fx.jar:mysql-connector-j.jar fx.BenchmarkCli --url=jdbc:mysql://localhost/york
+ *        --user=scott --password=tiger --rows=100000 --batchSizes=100,1000 --strategies=BATCH,REWRITE_BATCH
+ */
+public class BenchmarkCli {
+
+    private static final String DEFAULT_URL = "jdbc:mysql://localhost/york";
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: fx.BenchmarkCli [--config=FILE] [--key=value ...]",
+            "  url          JDBC URL (default " + DEFAULT_URL + ")",
+            "  user         database user",
+            "  password     database password",
+            "  rows         rows inserted per run (default 1000)",
+            "  batchSizes   comma-separated batch sizes (default 1000)",
+            "  warmups      warm-up runs per case (default 1)",
+            "  iterations   measured runs per case (default 5)",
+            "  seed         seed for the generated values (default " + DataGenerator.DEFAULT_SEED + ")",
+            "  distribution uniform, gaussian or skewed (default uniform)",
+            "  strategies   comma-separated names or ALL: NON_BATCH, BATCH, MULTI_ROW_VALUES,",
+            "               REWRITE_BATCH, TRANSACTION (default NON_BATCH,BATCH)",
+            "  output       write the JSON to this file instead of stdout");
+
+    private BenchmarkCli() {
+    }
+
+    public static void main(String[] args) {
+        try {
+            Properties settings = parseArguments(args);
+            if (settings == null) {
+                System.out.println(USAGE);
+                return;
+            }
+            run(settings);
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        } catch (SQLException | IOException ex) {
+            System.err.println("Benchmark failed: " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Merges the properties file and the --key=value arguments, or returns null when help was asked for
+     */
+    static Properties parseArguments(String[] args) throws IOException {
+        Properties settings = new Properties();
+        Properties overrides = new Properties();
+        for (String arg : args) {
+            if (arg.equals("--help") || arg.equals("-h")) {
+                return null;
+            }
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Unrecognized argument: " + arg);
+            }
+            String key = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            if (key.equals("config")) {
+                try (Reader reader = Files.newBufferedReader(Paths.get(value), StandardCharsets.UTF_8)) {
+                    settings.load(reader);
+                }
+            } else {
+                overrides.setProperty(key, value);
+            }
+        }
+        settings.putAll(overrides);
+        return settings;
+    }
+
+    /**
+     * Builds the benchmark configuration from the settings
+     */
+    static BatchBenchmark.Config toConfig(Properties settings) {
+        BatchBenchmark.Config config = new BatchBenchmark.Config();
+        try {
+            if (settings.containsKey("rows")) {
+                config.setRows(Integer.parseInt(settings.getProperty("rows").trim()));
+            }
+            if (settings.containsKey("batchSizes")) {
+                config.setBatchSizes(BatchBenchmark.Config.parseBatchSizes(settings.getProperty("batchSizes")));
+            }
+            if (settings.containsKey("warmups")) {
+                config.setWarmupIterations(Integer.parseInt(settings.getProperty("warmups").trim()));
+            }
+            if (settings.containsKey("iterations")) {
+                config.setMeasuredIterations(Integer.parseInt(settings.getProperty("iterations").trim()));
+            }
+            if (settings.containsKey("seed")) {
+                config.setSeed(Long.parseLong(settings.getProperty("seed").trim()));
+            }
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Not a number: " + ex.getMessage());
+        }
+        if (settings.containsKey("distribution")) {
+            config.setDistribution(DataGenerator.named(settings.getProperty("distribution")));
+        }
+        if (settings.containsKey("strategies")) {
+            config.setStrategies(parseStrategies(settings.getProperty("strategies")));
+        }
+        return config;
+    }
+
+    /**
+     * Parses a comma-separated list of strategy names such as "batch, rewrite-batch", or ALL
+     */
+    static Set<BatchBenchmark.Strategy> parseStrategies(String text) {
+        Set<BatchBenchmark.Strategy> strategies = EnumSet.noneOf(BatchBenchmark.Strategy.class);
+        for (String name : text.split(",")) {
+            String normalized = name.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            if (normalized.equals("ALL")) {
+                return EnumSet.allOf(BatchBenchmark.Strategy.class);
+            }
+            try {
+                strategies.add(BatchBenchmark.Strategy.valueOf(normalized));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Unknown strategy: " + name.trim());
+            }
+        }
+        return strategies;
+    }
+
+    private static void run(Properties settings) throws SQLException, IOException {
+        BatchBenchmark.Config config = toConfig(settings);
+        String url = settings.getProperty("url", DEFAULT_URL);
+        String user = settings.getProperty("user", "");
+        String password = settings.getProperty("password", "");
+
+        // The driver registers itself through the service loader, no Class.forName needed
+        List<BatchBenchmark.Result> results;
+        try (ConnectionPool pool = new ConnectionPool(url, user, password, 1, 1);
+                ConnectionPool rewritePool = config.getStrategies().contains(BatchBenchmark.Strategy.REWRITE_BATCH)
+                        ? new ConnectionPool(JdbcUtil.withProperty(url, "rewriteBatchedStatements", "true"),
+                                user, password, 0, 1)
+                        : null) {
+            try (Connection connection = pool.getConnection()) {
+                BatchBenchmark.createTable(connection);
+            }
+            results = new BatchBenchmark(pool, rewritePool).run(config, System.err::println);
+        }
+
+        String json = toJson(url, config, results);
+        String output = settings.getProperty("output");
+        if (output == null) {
+            System.out.println(json);
+        } else {
+            Path file = Paths.get(output);
+            Files.write(file, (json + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+            System.err.println("Results written to " + file.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Formats the run as a JSON document
+     */
+    static String toJson(String url, BatchBenchmark.Config config, List<BatchBenchmark.Result> results) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"url\": ").append(quote(url)).append(",\n");
+        json.append("  \"rows\": ").append(config.getRows()).append(",\n");
+        json.append("  \"warmupIterations\": ").append(config.getWarmupIterations()).append(",\n");
+        json.append("  \"measuredIterations\": ").append(config.getMeasuredIterations()).append(",\n");
+        json.append("  \"seed\": ").append(config.getSeed()).append(",\n");
+        json.append("  \"results\": [");
+        for (int i = 0; i < results.size(); i++) {
+            BatchBenchmark.Result result = results.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"strategy\": ").append(quote(result.getStrategy().name()))
+                    .append(", \"batchSize\": ").append(result.getBatchSize())
+                    .append(", \"rows\": ").append(result.getRows())
+                    .append(", \"iterations\": ").append(result.getIterations())
+                    .append(", \"minMillis\": ").append(number(result.getMinMillis()))
+                    .append(", \"medianMillis\": ").append(number(result.getMedianMillis()))
+                    .append(", \"p95Millis\": ").append(number(result.getP95Millis()))
+                    .append(", \"p99Millis\": ").append(number(result.getP99Millis()))
+                    .append(", \"rowsPerSecond\": ").append(number(result.getRowsPerSecond()))
+                    .append(", \"generateMillis\": ").append(number(result.getGenerateMillis()))
+                    .append('}');
+        }
+        json.append(results.isEmpty() ? "]\n" : "\n  ]\n");
+        json.append('}');
+        return json.toString();
+    }
+
+    private static String number(double value) {
+        return Double.isFinite(value) ? String.format(Locale.ROOT, "%.3f", value) : "null";
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,440 @@
+package fx;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A small bounded JDBC connection pool.
+ * Connections handed out by {@link #getConnection()} return to the pool when closed.
+ * The pool keeps at least minSize physical connections open, never opens more than
+ * maxSize, closes connections that have been idle longer than the idle timeout and
+ * validates a connection on borrow only when it has been idle for a while.
+ * Each physical connection keeps a {@link StatementCache}, so prepareStatement(sql)
+ * on a pooled connection reuses the statement prepared by an earlier borrower.
+ * With {@link JdbcMetrics} attached and enabled, borrow times and every statement
+ * executed through the pool are recorded.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000;
+    public static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 30 * 1000;
+
+    // Connections used more recently than this are trusted without a round trip
+    private static final long VALIDATION_INTERVAL_MILLIS = 5 * 1000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final int statementCacheSize;
+
+    // Most recently returned connections are at the head so hot connections stay hot
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    // Borrow metrics
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowWaitNanos = new LongAdder();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+    private final LongAdder connectionsCreated = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+
+    // Prepared statement cache metrics, shared by the caches of all connections
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+
+    // Optional instrumentation; null or disabled costs one volatile read
+    private volatile JdbcMetrics metrics;
+
+    public ConnectionPool(String url, String username, String password, int minSize, int maxSize)
+            throws SQLException {
+        this(url, username, password, minSize, maxSize,
+                DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_BORROW_TIMEOUT_MILLIS, StatementCache.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * A statementCacheSize of 0 disables prepared statement caching
+     */
+    public ConnectionPool(String url, String username, String password, int minSize, int maxSize,
+            long idleTimeoutMillis, long borrowTimeoutMillis, int statementCacheSize) throws SQLException {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        // Open the minimum up front so a bad URL or password fails here
+        fillToMinimum();
+
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the borrow timeout when all are in use.
+     * Closing the returned connection gives it back to the pool.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a pooled connection");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", ex);
+        }
+
+        try {
+            PooledConnection pooled = takeIdleOrCreate();
+            long waitNanos = System.nanoTime() - start;
+            recordBorrow(waitNanos);
+            JdbcMetrics current = metrics;
+            if (current != null && current.isEnabled()) {
+                current.recordAcquire(waitNanos);
+            }
+            return pooled.open();
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            validationFailures.increment();
+            discard(pooled);
+        }
+        return create();
+    }
+
+    /**
+     * Cheap validation: only connections idle longer than the validation interval
+     * pay for an isValid() round trip
+     */
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            if (pooled.physical.isClosed()) {
+                return false;
+            }
+            long idleMillis = System.currentTimeMillis() - pooled.lastUsed;
+            return idleMillis < VALIDATION_INTERVAL_MILLIS
+                    || pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private PooledConnection create() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, username, password);
+        PooledConnection pooled;
+        try {
+            pooled = new PooledConnection(physical);
+        } catch (SQLException ex) {
+            physical.close();
+            throw ex;
+        }
+        totalConnections.incrementAndGet();
+        connectionsCreated.increment();
+        return pooled;
+    }
+
+    private void fillToMinimum() throws SQLException {
+        while (!closed && totalConnections.get() < minSize) {
+            PooledConnection pooled = create();
+            pooled.lastUsed = System.currentTimeMillis();
+            idle.offerLast(pooled);
+        }
+    }
+
+    /**
+     * Returns a connection to the pool, or closes it when it is broken or the pool is closed
+     */
+    private void release(PooledConnection pooled) {
+        try {
+            boolean healthy = !pooled.physical.isClosed();
+            if (healthy && !pooled.physical.getAutoCommit()) {
+                // Never hand out a connection with someone else's open transaction
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            // Nor one that a borrower left read-only or at another isolation level
+            if (healthy && pooled.settingsChanged) {
+                pooled.physical.setReadOnly(pooled.readOnly);
+                pooled.physical.setTransactionIsolation(pooled.isolation);
+                pooled.settingsChanged = false;
+            }
+            pooled.lastUsed = System.currentTimeMillis();
+            if (healthy && !closed) {
+                idle.offerFirst(pooled);
+            } else {
+                discard(pooled);
+            }
+        } catch (SQLException ex) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        pooled.statements.close();
+        try {
+            pooled.physical.close();
+        } catch (SQLException ex) {
+            // Already broken; nothing more to do
+        }
+    }
+
+    /**
+     * Closes connections idle longer than the idle timeout, keeping at least minSize open
+     */
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        // Least recently used connections sit at the tail
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && totalConnections.get() > minSize) {
+            PooledConnection pooled = it.next();
+            if (pooled.lastUsed < cutoff && idle.removeLastOccurrence(pooled)) {
+                discard(pooled);
+            }
+        }
+        try {
+            fillToMinimum();
+        } catch (SQLException ex) {
+            System.err.println("Connection pool could not restore minimum size: " + ex.getMessage());
+        }
+    }
+
+    private void recordBorrow(long waitNanos) {
+        borrowCount.increment();
+        borrowWaitNanos.add(waitNanos);
+        maxBorrowWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * Attaches instrumentation to connections borrowed from now on; null detaches it
+     */
+    public void setMetrics(JdbcMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public JdbcMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getTotalCount() {
+        return totalConnections.get();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    public double getAverageBorrowWaitMillis() {
+        long count = borrowCount.sum();
+        return count == 0 ? 0 : borrowWaitNanos.sum() / 1e6 / count;
+    }
+
+    public double getMaxBorrowWaitMillis() {
+        return maxBorrowWaitNanos.get() / 1e6;
+    }
+
+    public long getStatementCacheHits() {
+        return statementHits.sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementMisses.sum();
+    }
+
+    /**
+     * One-line summary of pool state and borrow wait times
+     */
+    public String getStatistics() {
+        return String.format("pool: active=%d idle=%d total=%d max=%d created=%d invalid=%d "
+                + "borrows=%d avgWait=%.3f ms maxWait=%.3f ms statementCache: hits=%d misses=%d",
+                getActiveCount(), getIdleCount(), getTotalCount(), maxSize,
+                connectionsCreated.sum(), validationFailures.sum(), getBorrowCount(),
+                getAverageBorrowWaitMillis(), getMaxBorrowWaitMillis(),
+                getStatementCacheHits(), getStatementCacheMisses());
+    }
+
+    /**
+     * Closes idle connections now; borrowed connections are closed when returned
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool
+     */
+    private class PooledConnection {
+
+        final Connection physical;
+        final StatementCache statements;
+        volatile long lastUsed;
+
+        // Settings as the driver opened the connection, restored on release
+        final boolean readOnly;
+        final int isolation;
+
+        // Set when a borrower calls setReadOnly or setTransactionIsolation, so an
+        // untouched connection is released without the driver's round trips
+        volatile boolean settingsChanged;
+
+        PooledConnection(Connection physical) throws SQLException {
+            this.physical = physical;
+            this.readOnly = physical.isReadOnly();
+            this.isolation = physical.getTransactionIsolation();
+            this.statements = new StatementCache(physical, statementCacheSize, statementHits, statementMisses);
+        }
+
+        /**
+         * Creates the logical connection handed to callers
+         */
+        Connection open() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new LogicalConnection(this));
+        }
+    }
+
+    /**
+     * Delegates to the physical connection until closed, then returns it to the pool
+     */
+    private class LogicalConnection implements InvocationHandler {
+
+        private final PooledConnection pooled;
+        private boolean logicallyClosed;
+
+        LogicalConnection(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!logicallyClosed) {
+                        logicallyClosed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return logicallyClosed || pooled.physical.isClosed();
+                case "unwrap":
+                case "isWrapperFor":
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + pooled.physical + "]";
+                default:
+                    if (logicallyClosed) {
+                        throw new SQLException("Connection has been returned to the pool");
+                    }
+                    if (method.getName().equals("setReadOnly") || method.getName().equals("setTransactionIsolation")) {
+                        pooled.settingsChanged = true;
+                    }
+                    if (method.getName().equals("prepareStatement") || method.getName().equals("createStatement")) {
+                        return createStatement(method, args);
+                    }
+            }
+            return invokePhysical(method, args);
+        }
+
+        /**
+         * Prepares through the statement cache when possible and instruments the
+         * statement when metrics are enabled
+         */
+        private Statement createStatement(Method method, Object[] args) throws Throwable {
+            boolean prepare = method.getName().equals("prepareStatement");
+            Statement statement;
+            if (prepare && statementCacheSize > 0 && args.length == 1) {
+                statement = pooled.statements.prepare((String) args[0]);
+            } else {
+                statement = (Statement) invokePhysical(method, args);
+            }
+            JdbcMetrics current = metrics;
+            if (current == null || !current.isEnabled()) {
+                return statement;
+            }
+            return prepare ? InstrumentedStatement.wrap((PreparedStatement) statement, (String) args[0], current)
+                    : InstrumentedStatement.wrap(statement, current);
+        }
+
+        private Object invokePhysical(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+}
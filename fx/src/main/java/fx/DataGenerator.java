@@ -0,0 +1,140 @@
+package fx;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Generates the synthetic values inserted by the benchmarks. Each generator owns
+ * its own SplittableRandom, so threads never contend on a shared generator the way
+ * they do on Math.random(); give every thread its own with {@link #forWorker(int)}.
+ * The same seed always produces the same values, per worker, whatever the thread
+ * scheduling. Values are written straight into caller-owned primitive arrays and
+ * the time spent generating them is accumulated, so it can be reported apart from
+ * the database time.
+ */
+public class DataGenerator {
+
+    public static final long DEFAULT_SEED = 42;
+
+    /**
+     * Shape of the generated values
+     */
+    public interface Distribution {
+        double sample(SplittableRandom random);
+    }
+
+    /**
+     * Uniform in [0, 1), the same range Math.random() produced
+     */
+    public static Distribution uniform() {
+        return SplittableRandom::nextDouble;
+    }
+
+    /**
+     * Uniform in [min, max)
+     */
+    public static Distribution uniform(double min, double max) {
+        return random -> random.nextDouble(min, max);
+    }
+
+    /**
+     * Normally distributed around the mean
+     */
+    public static Distribution gaussian(double mean, double standardDeviation) {
+        return random -> {
+            // Box-Muller; 1 - u keeps the logarithm away from zero
+            double u = 1 - random.nextDouble();
+            double v = random.nextDouble();
+            return mean + standardDeviation * Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+        };
+    }
+
+    /**
+     * In [0, 1) with most values near 0; a larger exponent gives a stronger skew
+     */
+    public static Distribution skewed(double exponent) {
+        if (exponent < 1) {
+            throw new IllegalArgumentException("Skew exponent must be at least 1");
+        }
+        return random -> Math.pow(random.nextDouble(), exponent);
+    }
+
+    /**
+     * Looks up the distributions offered in the user interfaces: uniform, gaussian or skewed
+     */
+    public static Distribution named(String name) {
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "uniform":
+                return uniform();
+            case "gaussian":
+                return gaussian(0.5, 0.15);
+            case "skewed":
+                return skewed(4);
+            default:
+                throw new IllegalArgumentException("Unknown distribution: " + name
+                        + " (expected uniform, gaussian or skewed)");
+        }
+    }
+
+    private final long seed;
+    private final Distribution distribution;
+    private final SplittableRandom random;
+    private long generateNanos;
+
+    public DataGenerator() {
+        this(DEFAULT_SEED, uniform());
+    }
+
+    public DataGenerator(long seed, Distribution distribution) {
+        this(seed, distribution, new SplittableRandom(seed));
+    }
+
+    private DataGenerator(long seed, Distribution distribution, SplittableRandom random) {
+        this.seed = seed;
+        this.distribution = distribution;
+        this.random = random;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * An independent generator for one worker thread: split number worker of a root
+     * generator seeded with this one's seed. The root is recreated on every call, so a
+     * worker gets the same values whichever other workers were created, and in any order.
+     */
+    public DataGenerator forWorker(int worker) {
+        if (worker < 0) {
+            throw new IllegalArgumentException("Worker index must not be negative: " + worker);
+        }
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom split = root.split();
+        for (int i = 0; i < worker; i++) {
+            split = root.split();
+        }
+        return new DataGenerator(seed, distribution, split);
+    }
+
+    public double next() {
+        return distribution.sample(random);
+    }
+
+    /**
+     * Writes count values into values[0 .. count - 1]
+     */
+    public void fill(double[] values, int count) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            values[i] = distribution.sample(random);
+        }
+        generateNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Time spent in fill() so far
+     */
+    public long getGenerateNanos() {
+        return generateNanos;
+    }
+}
@@ -1,17 +1,26 @@
 package fx;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.prefs.Preferences;
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 /**
  * Exercise 34.1 - Staff Database Application
@@ -21,10 +30,38 @@ import javafx.stage.Stage;
 public class Exercise34_01 extends Application {
     
     // Database connection parameters for XAMPP MySQL
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/york";
+    // Server-side prepared statements so the pool's statement cache skips the parse on reuse,
+    // and changed rather than matched row counts so a save can tell updated from unchanged
+    private static final String DB_URL = "jdbc:mysql://localhost:3306/york?useServerPrepStmts=true&useAffectedRows=true";
     private static final String USERNAME = "york";
     private static final String PASSWORD = "yorky";
     
+    // Connection pool sizing; lookups, inserts and updates run in parallel up to the maximum
+    private static final int POOL_MIN_SIZE = 1;
+    private static final int POOL_MAX_SIZE = 8;
+    
+    // Name search waits this long after the last keystroke before querying the index
+    private static final Duration SEARCH_DEBOUNCE = Duration.millis(150);
+    private static final int MAX_SEARCH_RESULTS = 50;
+    
+    // Preferences key recording which database and schema version the DDL last succeeded on
+    private static final String SCHEMA_VERIFIED_KEY = "staffSchemaVerified";
+    
+    // MySQL error code for a missing table
+    private static final int ER_NO_SUCH_TABLE = 1146;
+    
+    // How often the local replica pulls Staff rows changed in the database
+    private static final long REPLICA_SYNC_MILLIS =
+            Long.getLong("staff.replicaSyncMillis", StaffReplica.DEFAULT_SYNC_INTERVAL_MILLIS);
+    
+    // Write-behind journal; unflushed edits in it are replayed on the next start
+    private static final Path JOURNAL_FILE = Paths.get(System.getProperty("user.home"),
+            ".exercise34_01", "staff-journal.bin");
+    
+    // Replica written on exit and mapped on the next start, before the database connects
+    private static final Path SNAPSHOT_FILE = Paths.get(System.getProperty("user.home"),
+            ".exercise34_01", "staff-snapshot.bin");
+    
     // GUI components
     private TextField tfId = new TextField();
     private TextField tfLastName = new TextField();
@@ -39,17 +76,61 @@ public class Exercise34_01 extends Application {
     private Button btView = new Button("View");
     private Button btInsert = new Button("Insert");
     private Button btUpdate = new Button("Update");
+    private Button btSave = new Button("Save");
     private Button btClear = new Button("Clear");
+    private Button btBrowse = new Button("Browse");
+    private Button btLookupIds = new Button("Look Up IDs");
+    private Button btImport = new Button("Import CSV");
+    private Button btExport = new Button("Export");
+    private Button btMetrics = new Button("Metrics");
+    private CheckBox cbWriteBehind = new CheckBox("Write-behind Save");
+    
+    private TextField tfSearch = new TextField();
+    private ListView<Staff> lvSearchResults = new ListView<>();
+    private PauseTransition searchDelay = new PauseTransition(SEARCH_DEBOUNCE);
     
     private Label lblStatus = new Label("Ready");
     
-    // Database connection
-    private Connection connection;
-    private PreparedStatement preparedStatement;
+    // Pooled database connections; null until the background connect finishes
+    private volatile ConnectionPool pool;
+    
+    // Startup timing, measured from JVM start
+    private long launchNanos;
+    private long firstFrameMillis = -1;
+    private long readyMillis = -1;
+    
+    // JDBC instrumentation, off until switched on in the metrics window
+    private final JdbcMetrics metrics = new JdbcMetrics(false);
+    
+    // Background data access; JDBC never runs on the JavaFX Application Thread
+    private StaffDataAccess dataAccess;
+    
+    // ID of the most recent View request; older results are not shown
+    private String lastViewId;
+    
+    // The record as last loaded into the form; Update sends only the columns changed since
+    private Staff loadedStaff;
+    
+    // Export in progress, if any; pressing Export again cancels it
+    private TableExporter runningExport;
+    
+    // Import in progress, if any; pressing Import CSV again cancels it
+    private StaffCsvImporter runningImport;
+    
+    // Local prefix index over last and first names
+    private StaffNameIndex nameIndex = new StaffNameIndex();
+    
+    // Local copy of Staff kept current by delta sync, starting from the snapshot if there is one
+    private StaffReplica replica;
+
+    public Exercise34_01() {
+    }
 
     @Override
     public void start(Stage primaryStage) {
-        // Initialize database
+        launchNanos = System.nanoTime() - millisSinceJvmStart() * 1_000_000;
+        
+        // Connect and verify the schema in the background; the window opens meanwhile
         initializeDatabase();
         
         // Create the GUI
@@ -59,13 +140,21 @@ public class Exercise34_01 extends Application {
         setupEventHandlers();
         
         // Create and show the scene
-        Scene scene = new Scene(root, 600, 400);
+        Scene scene = new Scene(root, 820, 550);
         primaryStage.setTitle("Staff Database - Exercise 34.1");
         primaryStage.setScene(scene);
+        recordFirstFrame(scene);
         primaryStage.show();
         
         // Close database connection when window closes
-        primaryStage.setOnCloseRequest(e -> closeConnection());
+        primaryStage.setOnCloseRequest(e -> {
+            dataAccess.shutdown();
+            closeWriteBehind();
+            if (replica != null) {
+                closeReplica();
+            }
+            closeConnection();
+        });
     }
     
     /**
@@ -115,7 +204,14 @@ public class Exercise34_01 extends Application {
         // Create button panel
         HBox buttonPanel = new HBox(10);
         buttonPanel.setPadding(new Insets(10));
-        buttonPanel.getChildren().addAll(btView, btInsert, btUpdate, btClear);
+        buttonPanel.getChildren().addAll(btView, btInsert, btUpdate, btSave, btClear, btBrowse, btLookupIds, btImport, btExport, btMetrics, cbWriteBehind);
+        
+        // Create name search panel
+        tfSearch.setPromptText("Type a last or first name");
+        tfSearch.setPrefColumnCount(25);
+        HBox searchPanel = new HBox(10, new Label("Search:"), tfSearch);
+        searchPanel.setPadding(new Insets(0, 10, 0, 10));
+        lvSearchResults.setPrefHeight(120);
         
         // Create status panel
         HBox statusPanel = new HBox();
@@ -123,7 +219,7 @@ public class Exercise34_01 extends Application {
         statusPanel.getChildren().add(lblStatus);
         
         // Add components to root
-        root.getChildren().addAll(formGrid, buttonPanel, statusPanel);
+        root.getChildren().addAll(formGrid, buttonPanel, searchPanel, lvSearchResults, statusPanel);
         
         return root;
     }
@@ -135,56 +231,293 @@ public class Exercise34_01 extends Application {
         btView.setOnAction(e -> viewRecord());
         btInsert.setOnAction(e -> insertRecord());
         btUpdate.setOnAction(e -> updateRecord());
+        btSave.setOnAction(e -> saveRecord());
         btClear.setOnAction(e -> clearFields());
+        btBrowse.setOnAction(e -> showBrowser());
+        btLookupIds.setOnAction(e -> showBulkLookup());
+        btImport.setOnAction(e -> importCsv());
+        btExport.setOnAction(e -> exportStaff());
+        btMetrics.setOnAction(e -> showMetrics());
+        
+        // Debounced search-as-you-type
+        tfSearch.textProperty().addListener((obs, oldText, newText) -> searchDelay.playFromStart());
+        searchDelay.setOnFinished(e -> searchNames());
+        lvSearchResults.getSelectionModel().selectedItemProperty().addListener((obs, oldStaff, staff) -> {
+            if (staff != null) {
+                tfId.setText(staff.getId());
+                showStaff(staff);
+                loadedStaff = staff;
+                lblStatus.setText("Record found for ID: " + staff.getId());
+            }
+        });
     }
     
     /**
-     * Initializes database connection and creates table if it doesn't exist
+     * Starts connecting to the database on a background thread. Lookups and edits made
+     * before the connection is up wait for it; the Staff table is only created when
+     * this database has not been verified on an earlier launch.
      */
     private void initializeDatabase() {
+        lblStatus.setText("Connecting to database 'york'...");
+        
+        CompletableFuture<ConnectionPool> connecting = CompletableFuture.supplyAsync(() -> {
+            try {
+                // Load MySQL JDBC driver
+                Class.forName("com.mysql.cj.jdbc.Driver");
+                
+                // Connect to database
+                ConnectionPool connections = new ConnectionPool(DB_URL, USERNAME, PASSWORD,
+                        POOL_MIN_SIZE, POOL_MAX_SIZE);
+                connections.setMetrics(metrics);
+                
+                // Create Staff table if it doesn't exist
+                if (!isSchemaVerified()) {
+                    try {
+                        createStaffTable(connections);
+                    } catch (SQLException ex) {
+                        connections.close();
+                        throw ex;
+                    }
+                }
+                return connections;
+            } catch (SQLException | ClassNotFoundException ex) {
+                throw new CompletionException(ex);
+            }
+        }, runnable -> {
+            Thread thread = new Thread(runnable, "staff-connect");
+            thread.setDaemon(true);
+            thread.start();
+        });
+        
+        dataAccess = new StaffDataAccess(connecting, new StaffCache());
+        dataAccess.addWriteListener(nameIndex::put);
+        openWriteBehind();
+        openReplica();
+        
+        connecting.whenComplete((connections, ex) -> Platform.runLater(() -> {
+            if (ex != null) {
+                Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                lblStatus.setText("Not connected to database");
+                showAlert("Database Error", "Failed to initialize database: " + cause.getMessage());
+                return;
+            }
+            pool = connections;
+            StaffWriteBehind writeBehind = dataAccess.getWriteBehind();
+            if (writeBehind != null) {
+                writeBehind.setPool(connections);
+            }
+            replica.setPool(connections);
+            loadNameIndex();
+            readyMillis = (System.nanoTime() - launchNanos) / 1_000_000;
+            int replaying = writeBehind == null ? 0 : writeBehind.getRecoveredCount();
+            lblStatus.setText("Connected to database 'york' successfully (first frame in " + firstFrameMillis
+                    + " ms, ready in " + readyMillis + " ms)"
+                    + (replaying > 0 ? "; replaying " + replaying + " unflushed edits" : ""));
+        }));
+    }
+    
+    /**
+     * Records when the first frame of the scene has been laid out
+     */
+    private void recordFirstFrame(Scene scene) {
+        Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                if (firstFrameMillis < 0) {
+                    firstFrameMillis = (System.nanoTime() - launchNanos) / 1_000_000;
+                    // Not removed while the scene is iterating its listeners
+                    Platform.runLater(() -> scene.removePostLayoutPulseListener(this));
+                }
+            }
+        };
+        scene.addPostLayoutPulseListener(listener);
+    }
+    
+    /**
+     * Milliseconds since the JVM was started, or 0 if the start time is unknown
+     */
+    private static long millisSinceJvmStart() {
+        return ProcessHandle.current().info().startInstant()
+                .map(start -> Math.max(0, System.currentTimeMillis() - start.toEpochMilli()))
+                .orElse(0L);
+    }
+    
+    private static String schemaSignature() {
+        return DB_URL + "#" + StaffRepository.SCHEMA_VERSION;
+    }
+    
+    /**
+     * Whether the Staff table was created or confirmed for this database and schema version before
+     */
+    private static boolean isSchemaVerified() {
+        Preferences prefs = Preferences.userNodeForPackage(Exercise34_01.class);
+        return schemaSignature().equals(prefs.get(SCHEMA_VERIFIED_KEY, null));
+    }
+    
+    private static void setSchemaVerified(boolean verified) {
+        Preferences prefs = Preferences.userNodeForPackage(Exercise34_01.class);
+        if (verified) {
+            prefs.put(SCHEMA_VERIFIED_KEY, schemaSignature());
+        } else {
+            prefs.remove(SCHEMA_VERIFIED_KEY);
+        }
+    }
+    
+    /**
+     * Opens the write-behind journal and starts flushing whatever an earlier run left in it
+     */
+    private void openWriteBehind() {
         try {
-            // Load MySQL JDBC driver
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            
-            // Connect to database
-            connection = DriverManager.getConnection(DB_URL, USERNAME, PASSWORD);
-            
-            // Create Staff table if it doesn't exist
-            createStaffTable();
-            
-            lblStatus.setText("Connected to database 'york' successfully");
-        } catch (SQLException | ClassNotFoundException ex) {
-            showAlert("Database Error", "Failed to initialize database: " + ex.getMessage());
+            Files.createDirectories(JOURNAL_FILE.getParent());
+            StaffWriteBehind writeBehind = new StaffWriteBehind(pool, JOURNAL_FILE);
+            dataAccess.setWriteBehind(writeBehind);
+            // Only Save queues: a flush inserts or overwrites, which would hide Insert's duplicate
+            // key error and let Update create a missing record
+            cbWriteBehind.setTooltip(new Tooltip("Save queues records in " + JOURNAL_FILE
+                    + " and writes them to the database in the background; Insert and Update do not"));
+            if (writeBehind.getRecoveredCount() > 0) {
+                lblStatus.setText("Connecting to database 'york'... " + writeBehind.getRecoveredCount()
+                        + " unflushed edits from " + JOURNAL_FILE + " will be replayed");
+            }
+        } catch (IOException | RuntimeException ex) {
+            cbWriteBehind.setDisable(true);
+            showAlert("Journal Error", "Write-behind is unavailable: " + ex.getMessage());
         }
     }
     
     /**
-     * Creates the Staff table with the specified schema
+     * Creates the replica, starting from the snapshot of the last session if it can be
+     * mapped, and seeds the name index from the snapshot on a background thread so
+     * lookups, browsing and name search work before the database connects
      */
-    private void createStaffTable() {
+    private void openReplica() {
+        StaffSnapshot snapshot = null;
         try {
-            Statement statement = connection.createStatement();
-            
-            String createTableSQL = "CREATE TABLE IF NOT EXISTS Staff (" +
-                    "id CHAR(9) NOT NULL PRIMARY KEY, " +
-                    "lastName VARCHAR(15), " +
-                    "firstName VARCHAR(15), " +
-                    "mi CHAR(1), " +
-                    "address VARCHAR(20), " +
-                    "city VARCHAR(20), " +
-                    "state CHAR(2), " +
-                    "telephone CHAR(10), " +
-                    "email VARCHAR(40)" +
-                    ")";
-            
-            statement.executeUpdate(createTableSQL);
-            statement.close();
-            
-        } catch (SQLException ex) {
-            showAlert("Database Error", "Failed to create Staff table: " + ex.getMessage());
+            snapshot = StaffSnapshot.openNewest(SNAPSHOT_FILE);
+        } catch (IOException ex) {
+            // Rebuilt from the database and written again on exit
+            System.err.println("Ignoring snapshot: " + ex.getMessage());
+        }
+        replica = snapshot == null ? new StaffReplica(null) : new StaffReplica(null, snapshot);
+        replica.addListener(changed -> changed.forEach(nameIndex::put));
+        dataAccess.setReplica(replica);
+        if (snapshot == null) {
+            return;
+        }
+        
+        StaffSnapshot base = snapshot;
+        StaffReplica local = replica;
+        Thread thread = new Thread(() -> {
+            long start = System.nanoTime();
+            // Stops if a resync dropped the snapshot; the sync fills the index instead
+            for (int i = 0; i < base.size() && local.hasSnapshot(); i++) {
+                // Rows the first sync already brought in are newer
+                nameIndex.putIfAbsent(base.get(i));
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            Platform.runLater(() -> {
+                if (!nameIndex.isLoaded()) {
+                    lblStatus.setText("Loaded " + base.size() + " records from snapshot in " + millis + " ms");
+                }
+            });
+        }, "staff-snapshot-index");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Writes the replica to the snapshot file for the next start, then closes it
+     */
+    private void closeReplica() {
+        try {
+            replica.writeSnapshot(SNAPSHOT_FILE);
+        } catch (IOException ex) {
+            System.err.println("Failed to write the snapshot: " + ex.getMessage());
+        }
+        replica.close();
+    }
+    
+    /**
+     * Flushes what it can; the rest stays in the journal for the next start
+     */
+    private void closeWriteBehind() {
+        StaffWriteBehind writeBehind = dataAccess.getWriteBehind();
+        if (writeBehind == null) {
+            return;
+        }
+        try {
+            writeBehind.close();
+        } catch (IOException ex) {
+            System.err.println("Failed to close the write-behind journal: " + ex.getMessage());
         }
     }
     
+    /**
+     * Syncs the replica in the background, which feeds the name index the rows changed
+     * since the last sync (the whole table the first time), then keeps it syncing
+     */
+    private void loadNameIndex() {
+        StaffReplica local = replica;
+        if (local == null) {
+            return;
+        }
+        dataAccess.submit(connection -> {
+            StaffReplica.SyncResult result = local.syncNow(connection);
+            // Rows deleted since the snapshot was written do not show up in a delta sync
+            if (local.hasSnapshot() && !local.validate(connection)) {
+                result = local.getLastSync();
+            }
+            return result;
+        }, result -> {
+            nameIndex.setLoaded();
+            local.start(REPLICA_SYNC_MILLIS);
+            lblStatus.setText("Name index ready (" + nameIndex.size() + " records, synced " + result + ")");
+            searchNames();
+        }, ex -> {
+            if (ex.getErrorCode() == ER_NO_SUCH_TABLE && isSchemaVerified()) {
+                // Dropped since it was verified; create it again and retry
+                setSchemaVerified(false);
+                dataAccess.submit(connection -> {
+                    StaffRepository.createTable(connection);
+                    setSchemaVerified(true);
+                    return null;
+                }, ignored -> loadNameIndex(), failure -> lblStatus.setText(
+                        "Failed to create Staff table: " + failure.getMessage()));
+                return;
+            }
+            lblStatus.setText("Name search unavailable: " + ex.getMessage());
+        });
+    }
+    
+    /**
+     * Shows the records whose last or first name starts with the search text
+     */
+    private void searchNames() {
+        String prefix = tfSearch.getText().trim();
+        if (prefix.isEmpty()) {
+            lvSearchResults.getItems().clear();
+            return;
+        }
+        
+        long startTime = System.nanoTime();
+        List<Staff> matches = nameIndex.search(prefix, MAX_SEARCH_RESULTS);
+        long elapsedMicros = (System.nanoTime() - startTime) / 1000;
+        
+        lvSearchResults.getItems().setAll(matches);
+        lblStatus.setText(matches.size() + " match(es) for '" + prefix + "' in " + elapsedMicros + " µs"
+                + (nameIndex.isLoaded() ? "" : " (index still loading)"));
+    }
+    
+    /**
+     * Creates the Staff table with the specified schema and remembers that it exists
+     */
+    private static void createStaffTable(ConnectionPool connections) throws SQLException {
+        try (Connection connection = connections.getConnection()) {
+            StaffRepository.createTable(connection);
+        }
+        setSchemaVerified(true);
+    }
+    
     /**
      * Views a record based on the ID entered
      */
@@ -196,37 +529,27 @@ public class Exercise34_01 extends Application {
             return;
         }
         
-        try {
-            String query = "SELECT * FROM Staff WHERE id = ?";
-            preparedStatement = connection.prepareStatement(query);
-            preparedStatement.setString(1, id);
-            
-            ResultSet resultSet = preparedStatement.executeQuery();
+        lastViewId = id;
+        lblStatus.setText("Looking up ID: " + id + "...");
+        
+        dataAccess.view(id, staff -> {
+            if (!id.equals(lastViewId)) {
+                return; // A lookup for another ID was started since
+            }
             
-            if (resultSet.next()) {
+            loadedStaff = staff;
+            if (staff != null) {
                 // Populate fields with retrieved data
-                tfLastName.setText(resultSet.getString("lastName"));
-                tfFirstName.setText(resultSet.getString("firstName"));
-                tfMi.setText(resultSet.getString("mi"));
-                tfAddress.setText(resultSet.getString("address"));
-                tfCity.setText(resultSet.getString("city"));
-                tfState.setText(resultSet.getString("state"));
-                tfTelephone.setText(resultSet.getString("telephone"));
-                tfEmail.setText(resultSet.getString("email"));
-                
+                showStaff(staff);
                 lblStatus.setText("Record found for ID: " + id);
             } else {
                 lblStatus.setText("Record not found for ID: " + id);
                 clearDataFields(); // Clear all fields except ID
             }
-            
-            resultSet.close();
-            preparedStatement.close();
-            
-        } catch (SQLException ex) {
+        }, ex -> {
             lblStatus.setText("Error viewing record");
             showAlert("Database Error", "Failed to retrieve record: " + ex.getMessage());
-        }
+        });
     }
     
     /**
@@ -237,72 +560,333 @@ public class Exercise34_01 extends Application {
             return;
         }
         
-        try {
-            String query = "INSERT INTO Staff (id, lastName, firstName, mi, address, city, state, telephone, email) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-            
-            preparedStatement = connection.prepareStatement(query);
-            setStatementParameters();
-            
-            int result = preparedStatement.executeUpdate();
-            
+        Staff staff = readForm();
+        lblStatus.setText("Inserting record...");
+        
+        dataAccess.insert(staff, result -> {
             if (result > 0) {
+                loadedStaff = staff;
                 lblStatus.setText("Record inserted successfully");
             } else {
                 lblStatus.setText("Failed to insert record");
             }
-            
-            preparedStatement.close();
-            
-        } catch (SQLException ex) {
+        }, ex -> {
             lblStatus.setText("Error inserting record");
             if (ex.getErrorCode() == 1062) { // Duplicate key error
-                showAlert("Insert Error", "A record with ID '" + tfId.getText() + "' already exists.");
+                showAlert("Insert Error", "A record with ID '" + staff.getId() + "' already exists.");
             } else {
                 showAlert("Database Error", "Failed to insert record: " + ex.getMessage());
             }
-        }
+        });
     }
     
     /**
-     * Updates an existing record in the database
+     * Updates an existing record in the database, sending only the fields changed
+     * since the record was viewed
      */
     private void updateRecord() {
         if (!validateInput()) {
             return;
         }
         
-        try {
-            String query = "UPDATE Staff SET lastName = ?, firstName = ?, mi = ?, address = ?, " +
-                    "city = ?, state = ?, telephone = ?, email = ? WHERE id = ?";
-            
-            preparedStatement = connection.prepareStatement(query);
-            
-            // Set parameters (note different order for UPDATE)
-            preparedStatement.setString(1, tfLastName.getText().trim());
-            preparedStatement.setString(2, tfFirstName.getText().trim());
-            preparedStatement.setString(3, tfMi.getText().trim());
-            preparedStatement.setString(4, tfAddress.getText().trim());
-            preparedStatement.setString(5, tfCity.getText().trim());
-            preparedStatement.setString(6, tfState.getText().trim());
-            preparedStatement.setString(7, tfTelephone.getText().trim());
-            preparedStatement.setString(8, tfEmail.getText().trim());
-            preparedStatement.setString(9, tfId.getText().trim());
-            
-            int result = preparedStatement.executeUpdate();
-            
+        Staff staff = readForm();
+        Staff loaded = loadedStaff;
+        if (loaded != null && loaded.getId().equals(staff.getId())) {
+            updateChangedFields(loaded, staff);
+            return;
+        }
+        
+        // Not loaded through View, so every column is written
+        lblStatus.setText("Updating record...");
+        
+        dataAccess.update(staff, result -> {
             if (result > 0) {
+                loadedStaff = staff;
                 lblStatus.setText("Record updated successfully");
             } else {
-                lblStatus.setText("No record found with ID: " + tfId.getText());
+                lblStatus.setText("No record found with ID: " + staff.getId());
             }
-            
-            preparedStatement.close();
-            
-        } catch (SQLException ex) {
+        }, ex -> {
             lblStatus.setText("Error updating record");
             showAlert("Database Error", "Failed to update record: " + ex.getMessage());
+        });
+    }
+    
+    /**
+     * Inserts the record, or updates it if the ID already exists, in one round trip
+     */
+    private void saveRecord() {
+        if (!validateInput()) {
+            return;
+        }
+        
+        Staff staff = readForm();
+        if (cbWriteBehind.isSelected()) {
+            queueRecord(staff);
+            return;
+        }
+        lblStatus.setText("Saving record...");
+        
+        dataAccess.upsert(staff, outcome -> {
+            loadedStaff = staff;
+            switch (outcome) {
+                case INSERTED:
+                    lblStatus.setText("Record inserted successfully");
+                    break;
+                case UPDATED:
+                    lblStatus.setText("Record updated successfully");
+                    break;
+                default:
+                    lblStatus.setText("Record saved, nothing changed");
+                    break;
+            }
+        }, ex -> {
+            lblStatus.setText("Error saving record");
+            showAlert("Database Error", "Failed to save record: " + ex.getMessage());
+        });
+    }
+    
+    /**
+     * Journals the record for the background flusher, which inserts or overwrites it.
+     * Returns without waiting for the database.
+     */
+    private void queueRecord(Staff staff) {
+        try {
+            dataAccess.saveLater(staff);
+            loadedStaff = staff;
+            lblStatus.setText("Queued ID: " + staff.getId() + " ("
+                    + dataAccess.getWriteBehind().getPendingCount() + " pending)");
+        } catch (IOException ex) {
+            lblStatus.setText("Error queueing record");
+            showAlert("Journal Error", "Failed to queue record: " + ex.getMessage());
+        }
+    }
+    
+    /**
+     * Writes the fields that differ from the loaded record, or nothing if none do.
+     * If another user changed the same fields meanwhile, the current record is shown instead.
+     */
+    private void updateChangedFields(Staff loaded, Staff staff) {
+        List<String> changed = StaffRepository.changedColumns(loaded, staff);
+        if (changed.isEmpty()) {
+            lblStatus.setText("No changes to update");
+            return;
         }
+        
+        lblStatus.setText("Updating " + String.join(", ", changed) + "...");
+        
+        dataAccess.updateChanged(loaded, staff, outcome -> {
+            switch (outcome) {
+                case UPDATED:
+                    loadedStaff = staff;
+                    lblStatus.setText("Record updated successfully (" + String.join(", ", changed) + ")");
+                    break;
+                case UNCHANGED:
+                    lblStatus.setText("No changes to update");
+                    break;
+                case NOT_FOUND:
+                    loadedStaff = null;
+                    lblStatus.setText("No record found with ID: " + staff.getId());
+                    break;
+                case CONFLICT:
+                    lblStatus.setText("Update conflict for ID: " + staff.getId());
+                    showAlert("Update Conflict", "Record '" + staff.getId() + "' was changed by someone else "
+                            + "since it was loaded. The current values are shown; apply your changes again.");
+                    viewRecord();
+                    break;
+                default:
+                    break;
+            }
+        }, ex -> {
+            lblStatus.setText("Error updating record");
+            showAlert("Database Error", "Failed to update record: " + ex.getMessage());
+        });
+    }
+    
+    /**
+     * Opens the paginated Staff browser; double-clicking a row loads it into the form
+     */
+    private void showBrowser() {
+        StaffBrowser browser = new StaffBrowser(dataAccess, staff -> {
+            tfId.setText(staff.getId());
+            viewRecord();
+        });
+        
+        Stage browserStage = new Stage();
+        browserStage.setTitle("Browse Staff");
+        browserStage.setScene(new Scene(browser, 900, 500));
+        browserStage.show();
+    }
+    
+    /**
+     * Opens the bulk lookup for a pasted list of IDs; double-clicking a row loads it into the form
+     */
+    private void showBulkLookup() {
+        StaffBulkLookup lookup = new StaffBulkLookup(dataAccess, staff -> {
+            tfId.setText(staff.getId());
+            viewRecord();
+        });
+        
+        Stage lookupStage = new Stage();
+        lookupStage.setTitle("Look Up Staff IDs");
+        lookupStage.setScene(new Scene(lookup, 1000, 500));
+        lookupStage.show();
+    }
+    
+    /**
+     * Opens the live JDBC metrics window
+     */
+    private void showMetrics() {
+        if (pool == null) {
+            showAlert("Database Error", "Not connected to database");
+            return;
+        }
+        Stage metricsStage = new Stage();
+        metricsStage.setTitle("JDBC Metrics");
+        metricsStage.setScene(new Scene(new MetricsPanel(pool, metrics, this::getStatistics), 900, 500));
+        metricsStage.show();
+    }
+    
+    /**
+     * Startup times and the cache, write-behind and replica figures, for the metrics window
+     */
+    private String getStatistics() {
+        String separator = System.lineSeparator();
+        StringBuilder report = new StringBuilder();
+        report.append("startup: firstFrame=").append(firstFrameMillis).append(" ms ready=")
+                .append(readyMillis).append(" ms").append(separator);
+        report.append(dataAccess.getCache().getStatistics()).append(separator);
+        StaffWriteBehind writeBehind = dataAccess.getWriteBehind();
+        if (writeBehind != null) {
+            report.append(writeBehind.getStatistics()).append(separator);
+        }
+        if (replica != null) {
+            report.append(replica.getStatistics()).append(separator);
+        }
+        return report.toString();
+    }
+    
+    /**
+     * Bulk-imports Staff records from a CSV file chosen by the user, or cancels the
+     * running import
+     */
+    private void importCsv() {
+        if (runningImport != null) {
+            runningImport.cancel();
+            return;
+        }
+        
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import Staff CSV");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv", "*.txt"));
+        File file = chooser.showOpenDialog(tfId.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        
+        // Ask for batch size and commit interval
+        TextField tfBatchSize = new TextField(String.valueOf(StaffCsvImporter.DEFAULT_BATCH_SIZE));
+        TextField tfCommitInterval = new TextField(String.valueOf(StaffCsvImporter.DEFAULT_COMMIT_INTERVAL));
+        GridPane settings = new GridPane();
+        settings.setHgap(10);
+        settings.setVgap(10);
+        settings.add(new Label("Batch size:"), 0, 0);
+        settings.add(tfBatchSize, 1, 0);
+        settings.add(new Label("Commit every (rows):"), 0, 1);
+        settings.add(tfCommitInterval, 1, 1);
+        
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Import " + file.getName());
+        dialog.getDialogPane().setContent(settings);
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        if (dialog.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+            return;
+        }
+        
+        StaffCsvImporter importer;
+        try {
+            importer = new StaffCsvImporter(Integer.parseInt(tfBatchSize.getText().trim()),
+                    Integer.parseInt(tfCommitInterval.getText().trim()));
+        } catch (IllegalArgumentException ex) {
+            showAlert("Input Error", "Batch size and commit interval must be positive numbers");
+            return;
+        }
+        
+        runningImport = importer;
+        btImport.setText("Cancel Import");
+        lblStatus.setText("Importing " + file.getName() + "...");
+        
+        dataAccess.submit(connection -> {
+            try {
+                return importer.importFile(connection, file.toPath(), stats -> {
+                    String progress = String.format("Importing %s: %.0f%% - %s",
+                            file.getName(), stats.getProgress() * 100, stats);
+                    Platform.runLater(() -> lblStatus.setText(progress));
+                });
+            } catch (IOException ex) {
+                throw new SQLException("Cannot read " + file + ": " + ex.getMessage(), ex);
+            }
+        }, stats -> {
+            runningImport = null;
+            btImport.setText("Import CSV");
+            lblStatus.setText("Import finished: " + stats);
+            if (stats.getRowsRejected() > 0) {
+                showAlert("Import Rejections", stats.getRowsRejected() + " row(s) rejected:\n"
+                        + String.join("\n", stats.getRejections()));
+            }
+            loadNameIndex(); // Pick up the imported names
+        }, ex -> {
+            runningImport = null;
+            btImport.setText("Import CSV");
+            lblStatus.setText("Import failed");
+            showAlert("Database Error", "Import failed: " + ex.getMessage());
+        });
+    }
+    
+    /**
+     * Exports the Staff table to a CSV or binary file, or cancels the running export
+     */
+    private void exportStaff() {
+        if (runningExport != null) {
+            runningExport.cancel();
+            return;
+        }
+        
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Staff");
+        chooser.setInitialFileName("staff.csv");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV files", "*.csv"),
+                new FileChooser.ExtensionFilter("Binary files", "*.bin"));
+        File file = chooser.showSaveDialog(tfId.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        
+        TableExporter exporter = new TableExporter(TableExporter.formatFor(file.toPath()));
+        runningExport = exporter;
+        btExport.setText("Cancel Export");
+        lblStatus.setText("Exporting Staff...");
+        
+        dataAccess.submit(connection -> {
+            try {
+                return exporter.export(connection, "Staff", file.toPath(), stats -> {
+                    String progress = "Exporting " + stats;
+                    Platform.runLater(() -> lblStatus.setText(progress));
+                });
+            } catch (IOException ex) {
+                throw new SQLException("Cannot write " + file + ": " + ex.getMessage(), ex);
+            }
+        }, stats -> {
+            runningExport = null;
+            btExport.setText("Export");
+            lblStatus.setText("Export finished: " + stats);
+        }, ex -> {
+            runningExport = null;
+            btExport.setText("Export");
+            lblStatus.setText("Export failed");
+            showAlert("Database Error", "Export failed: " + ex.getMessage());
+        });
     }
     
     /**
@@ -311,6 +895,7 @@ public class Exercise34_01 extends Application {
     private void clearFields() {
         tfId.clear();
         clearDataFields();
+        loadedStaff = null;
         lblStatus.setText("Fields cleared");
     }
     
@@ -332,18 +917,9 @@ public class Exercise34_01 extends Application {
      * Validates input fields
      */
     private boolean validateInput() {
-        if (tfId.getText().trim().isEmpty()) {
-            showAlert("Input Error", "ID is required");
-            return false;
-        }
-        
-        if (tfLastName.getText().trim().isEmpty()) {
-            showAlert("Input Error", "Last Name is required");
-            return false;
-        }
-        
-        if (tfFirstName.getText().trim().isEmpty()) {
-            showAlert("Input Error", "First Name is required");
+        String error = readForm().validate();
+        if (error != null) {
+            showAlert("Input Error", error);
             return false;
         }
         
@@ -351,18 +927,33 @@ public class Exercise34_01 extends Application {
     }
     
     /**
-     * Sets parameters for prepared statement (for INSERT operation)
+     * Builds a Staff record from the form fields
      */
-    private void setStatementParameters() throws SQLException {
-        preparedStatement.setString(1, tfId.getText().trim());
-        preparedStatement.setString(2, tfLastName.getText().trim());
-        preparedStatement.setString(3, tfFirstName.getText().trim());
-        preparedStatement.setString(4, tfMi.getText().trim());
-        preparedStatement.setString(5, tfAddress.getText().trim());
-        preparedStatement.setString(6, tfCity.getText().trim());
-        preparedStatement.setString(7, tfState.getText().trim());
-        preparedStatement.setString(8, tfTelephone.getText().trim());
-        preparedStatement.setString(9, tfEmail.getText().trim());
+    private Staff readForm() {
+        return new Staff(
+                tfId.getText().trim(),
+                tfLastName.getText().trim(),
+                tfFirstName.getText().trim(),
+                tfMi.getText().trim(),
+                tfAddress.getText().trim(),
+                tfCity.getText().trim(),
+                tfState.getText().trim(),
+                tfTelephone.getText().trim(),
+                tfEmail.getText().trim());
+    }
+    
+    /**
+     * Fills the data fields from a Staff record
+     */
+    private void showStaff(Staff staff) {
+        tfLastName.setText(staff.getLastName());
+        tfFirstName.setText(staff.getFirstName());
+        tfMi.setText(staff.getMi());
+        tfAddress.setText(staff.getAddress());
+        tfCity.setText(staff.getCity());
+        tfState.setText(staff.getState());
+        tfTelephone.setText(staff.getTelephone());
+        tfEmail.setText(staff.getEmail());
     }
     
     /**
@@ -379,15 +970,11 @@ public class Exercise34_01 extends Application {
 
 
     /**
-     * Closes the database connection
+     * Closes the database connections
      */
     private void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-            }
-        } catch (SQLException ex) {
-            System.err.println("Error closing database connection: " + ex.getMessage());
+        if (pool != null) {
+            pool.close();
         }
     }
     
@@ -1,42 +1,89 @@
 package fx;
 
+import java.io.File;
 import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
+import javafx.scene.control.Tooltip;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.FlowPane;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 
 /**
  * Exercise 35.1 - Batch Update Performance Demonstration
  * A JavaFX program that compares performance of batch updates vs individual updates
- * when inserting 1000 records into a database.
+ * when inserting records into a database. The Run Benchmark button runs a full
+ * matrix of insertion strategies and batch sizes through {@link BatchBenchmark}.
  */
 public class Exercise35_01 extends Application {
     
-    // Database connection
-    private Connection connection;
+    // Connection pool sizing for the benchmark connections
+    private static final int POOL_MIN_SIZE = 1;
+    private static final int POOL_MAX_SIZE = 16;
+    
+    // Pooled database connections
+    private ConnectionPool pool;
+    
+    // Connections with rewriteBatchedStatements=true for the rewritten-batch strategy
+    private ConnectionPool rewritePool;
+    
+    // JDBC instrumentation shared by both pools, off until switched on in the metrics window
+    private final JdbcMetrics metrics = new JdbcMetrics(false);
     
     // GUI components
     private TextArea taOutput = new TextArea();
     private Button btnBatchUpdate = new Button("Batch Update");
     private Button btnNonBatchUpdate = new Button("Non Batch Update");
     private Button btnConnectDB = new Button("Connect to Database");
+    private Button btnExport = new Button("Export Temp");
+    private Button btnAnalyze = new Button("Columnar vs SQL");
+    private CheckBox cbGenerateColumns = new CheckBox("Generate rows in memory");
+    private Button btnChart = new Button("Chart Temp");
+    private Button btnBenchmark = new Button("Run Benchmark");
+    private Button btnParallel = new Button("Parallel Sweep");
+    private Button btnMetrics = new Button("Metrics");
+    private TextField tfConnections = new TextField("8");
+    private Button btnPipeline = new Button("Pipeline vs Serial");
+    private TextField tfProducers = new TextField("2");
+    
+    // Benchmark settings
+    private TextField tfRows = new TextField("1000");
+    private TextField tfBatchSizes = new TextField("100, 1000");
+    private TextField tfWarmups = new TextField("1");
+    private TextField tfIterations = new TextField("5");
+    private TextField tfSeed = new TextField(String.valueOf(DataGenerator.DEFAULT_SEED));
+    private ComboBox<String> cbDistribution = new ComboBox<>();
+    private Map<BatchBenchmark.Strategy, CheckBox> strategyBoxes = new EnumMap<>(BatchBenchmark.Strategy.class);
+    
+    // Benchmark in progress, if any; pressing Run Benchmark again cancels it
+    private BatchBenchmark runningBenchmark;
+    
+    // Export in progress, if any; pressing the export button again cancels it
+    private TableExporter runningExport;
+    
+    public Exercise35_01() {
+    }
     
     @Override
     public void start(Stage primaryStage) {
@@ -47,7 +94,7 @@ public class Exercise35_01 extends Application {
         setupEventHandlers();
         
         // Create and show the scene
-        Scene scene = new Scene(root, 400, 300);
+        Scene scene = new Scene(root, 900, 600);
         primaryStage.setTitle("Exercise35_01 - Batch Update Performance");
         primaryStage.setScene(scene);
         primaryStage.show();
@@ -71,23 +118,73 @@ public class Exercise35_01 extends Application {
         // Button panel
         HBox buttonPanel = new HBox(10);
         buttonPanel.setAlignment(Pos.CENTER);
-        buttonPanel.getChildren().addAll(btnBatchUpdate, btnNonBatchUpdate);
+        buttonPanel.getChildren().addAll(btnBatchUpdate, btnNonBatchUpdate, btnExport, btnMetrics);
+        
+        // In-memory columnar analysis of Temp
+        HBox analysisPanel = new HBox(10);
+        analysisPanel.setAlignment(Pos.CENTER);
+        cbGenerateColumns.setTooltip(new Tooltip("Fill the columns with the Rows setting from the generator "
+                + "instead of loading Temp; no SQL comparison"));
+        analysisPanel.getChildren().addAll(btnAnalyze, cbGenerateColumns, btnChart);
         
         // Connect button
         HBox connectPanel = new HBox();
         connectPanel.setAlignment(Pos.CENTER);
         connectPanel.getChildren().add(btnConnectDB);
         
+        // Benchmark settings
+        GridPane settingsPanel = new GridPane();
+        settingsPanel.setHgap(10);
+        settingsPanel.setVgap(5);
+        settingsPanel.setAlignment(Pos.CENTER);
+        settingsPanel.add(new Label("Rows:"), 0, 0);
+        settingsPanel.add(tfRows, 1, 0);
+        settingsPanel.add(new Label("Batch sizes:"), 2, 0);
+        settingsPanel.add(tfBatchSizes, 3, 0);
+        settingsPanel.add(new Label("Warm-up runs:"), 0, 1);
+        settingsPanel.add(tfWarmups, 1, 1);
+        settingsPanel.add(new Label("Measured runs:"), 2, 1);
+        settingsPanel.add(tfIterations, 3, 1);
+        settingsPanel.add(new Label("Seed:"), 4, 0);
+        settingsPanel.add(tfSeed, 5, 0);
+        cbDistribution.getItems().addAll("uniform", "gaussian", "skewed");
+        cbDistribution.setValue("uniform");
+        settingsPanel.add(new Label("Distribution:"), 4, 1);
+        settingsPanel.add(cbDistribution, 5, 1);
+        settingsPanel.add(new Label("Max connections (K):"), 0, 2);
+        settingsPanel.add(tfConnections, 1, 2);
+        settingsPanel.add(btnParallel, 3, 2);
+        settingsPanel.add(new Label("Producer threads:"), 0, 3);
+        settingsPanel.add(tfProducers, 1, 3);
+        settingsPanel.add(btnPipeline, 3, 3);
+        
+        FlowPane strategyPanel = new FlowPane(10, 5);
+        strategyPanel.setAlignment(Pos.CENTER);
+        for (BatchBenchmark.Strategy strategy : BatchBenchmark.Strategy.values()) {
+            CheckBox box = new CheckBox(strategy.getLabel());
+            box.setSelected(true);
+            strategyBoxes.put(strategy, box);
+            strategyPanel.getChildren().add(box);
+        }
+        strategyPanel.getChildren().add(btnBenchmark);
+        
         // Output area
         taOutput.setPrefRowCount(10);
         taOutput.setEditable(false);
         taOutput.setStyle("-fx-font-family: monospace;");
         
-        root.getChildren().addAll(lblTitle, connectPanel, buttonPanel, new Label("Results:"), taOutput);
+        root.getChildren().addAll(lblTitle, connectPanel, buttonPanel, settingsPanel, strategyPanel,
+                analysisPanel, new Label("Results:"), taOutput);
         
         // Initially disable update buttons
         btnBatchUpdate.setDisable(true);
         btnNonBatchUpdate.setDisable(true);
+        btnExport.setDisable(true);
+        btnBenchmark.setDisable(true);
+        btnParallel.setDisable(true);
+        btnPipeline.setDisable(true);
+        btnMetrics.setDisable(true);
+        btnChart.setDisable(true);
         
         return root;
     }
@@ -99,6 +196,13 @@ public class Exercise35_01 extends Application {
         btnConnectDB.setOnAction(e -> showConnectionDialog());
         btnBatchUpdate.setOnAction(e -> performBatchUpdate());
         btnNonBatchUpdate.setOnAction(e -> performNonBatchUpdate());
+        btnExport.setOnAction(e -> exportTemp());
+        btnAnalyze.setOnAction(e -> analyzeTemp());
+        btnChart.setOnAction(e -> showChart());
+        btnBenchmark.setOnAction(e -> runBenchmark());
+        btnParallel.setOnAction(e -> runParallelSweep());
+        btnPipeline.setOnAction(e -> runPipelineComparison());
+        btnMetrics.setOnAction(e -> showMetrics());
     }
     
     /**
@@ -152,14 +256,26 @@ public class Exercise35_01 extends Application {
             // Load MySQL JDBC driver
             Class.forName("com.mysql.cj.jdbc.Driver");
             
-            // Connect to database
-            connection = DriverManager.getConnection(url, username, password);
+            // Connect to database, replacing any earlier pools
+            ConnectionPool newPool = new ConnectionPool(url, username, password, POOL_MIN_SIZE, POOL_MAX_SIZE);
+            closePools();
+            pool = newPool;
+            rewritePool = new ConnectionPool(JdbcUtil.withProperty(url, "rewriteBatchedStatements", "true"),
+                    username, password, 0, 1);
+            pool.setMetrics(metrics);
+            rewritePool.setMetrics(metrics);
             
             taOutput.setText("Connected to database successfully!\n");
             
             // Enable update buttons
             btnBatchUpdate.setDisable(false);
             btnNonBatchUpdate.setDisable(false);
+            btnExport.setDisable(false);
+            btnBenchmark.setDisable(false);
+            btnParallel.setDisable(false);
+            btnPipeline.setDisable(false);
+            btnMetrics.setDisable(false);
+            btnChart.setDisable(false);
             
             return true;
             
@@ -176,14 +292,10 @@ public class Exercise35_01 extends Application {
      * Creates the Temp table if it doesn't exist
      */
     private void createTempTable() {
-        try {
-            Statement statement = connection.createStatement();
-            
+        try (Connection connection = pool.getConnection()) {
             // Drop table if exists and create new one
-            statement.executeUpdate("DROP TABLE IF EXISTS Temp");
-            statement.executeUpdate("CREATE TABLE Temp(num1 DOUBLE, num2 DOUBLE, num3 DOUBLE)");
+            BatchBenchmark.createTable(connection);
             
-            statement.close();
             taOutput.appendText("Temp table created successfully.\n");
             
         } catch (SQLException ex) {
@@ -192,89 +304,352 @@ public class Exercise35_01 extends Application {
     }
     
     /**
-     * Performs batch update - inserts 1000 records using batch processing
+     * Performs batch update - inserts the rows using batch processing
      */
     private void performBatchUpdate() {
-        if (connection == null) {
+        runSingle(BatchBenchmark.Strategy.BATCH, "Batch update successful", "Batch update failed");
+    }
+    
+    /**
+     * Performs non-batch update - inserts the rows individually
+     */
+    private void performNonBatchUpdate() {
+        runSingle(BatchBenchmark.Strategy.NON_BATCH, "Non-batch update completed", "Non-batch update failed");
+    }
+    
+    /**
+     * Times one run of a strategy on a background thread, using the row count
+     * and the first batch size from the settings
+     */
+    private void runSingle(BatchBenchmark.Strategy strategy, String successMessage, String failureMessage) {
+        if (pool == null) {
             showAlert("Connection Error", "Please connect to database first.");
             return;
         }
         
+        BatchBenchmark.Config config;
         try {
-            // Clear previous data
-            Statement stmt = connection.createStatement();
-            stmt.executeUpdate("DELETE FROM Temp");
-            stmt.close();
-            
-            long startTime = System.currentTimeMillis();
-            
-            // Prepare statement for batch insert
-            String sql = "INSERT INTO Temp (num1, num2, num3) VALUES (?, ?, ?)";
-            PreparedStatement pstmt = connection.prepareStatement(sql);
-            
-            // Add 1000 records to batch
-            for (int i = 0; i < 1000; i++) {
-                pstmt.setDouble(1, Math.random());
-                pstmt.setDouble(2, Math.random());
-                pstmt.setDouble(3, Math.random());
-                pstmt.addBatch();
+            config = readConfig();
+        } catch (IllegalArgumentException ex) {
+            showAlert("Input Error", ex.getMessage());
+            return;
+        }
+        
+        BatchBenchmark benchmark = new BatchBenchmark(pool, rewritePool);
+        setBenchmarkRunning(true);
+        runInBackground(() -> {
+            try {
+                DataGenerator generator = config.newGenerator();
+                long elapsedNanos = benchmark.runOnce(strategy, config.getRows(), config.getBatchSizes()[0], generator);
+                Platform.runLater(() -> {
+                    taOutput.appendText(successMessage + "\n");
+                    taOutput.appendText(String.format("The elapsed time is %.3f milliseconds (%.3f ms generating values)%n%n",
+                            elapsedNanos / 1e6, generator.getGenerateNanos() / 1e6));
+                });
+            } catch (SQLException ex) {
+                Platform.runLater(() -> showAlert("Database Error", failureMessage + ": " + ex.getMessage()));
+            } finally {
+                Platform.runLater(() -> setBenchmarkRunning(false));
             }
-            
-            // Execute batch
-            pstmt.executeBatch();
-            pstmt.close();
-            
-            long endTime = System.currentTimeMillis();
-            long elapsedTime = endTime - startTime;
-            
-            taOutput.appendText("Batch update successful\n");
-            taOutput.appendText("The elapsed time is " + elapsedTime + " milliseconds\n\n");
-            
-        } catch (SQLException ex) {
-            showAlert("Database Error", "Batch update failed: " + ex.getMessage());
+        });
+    }
+    
+    /**
+     * Runs the configured strategy and batch-size matrix, or cancels the running one
+     */
+    private void runBenchmark() {
+        if (runningBenchmark != null) {
+            runningBenchmark.cancel();
+            return;
+        }
+        
+        BatchBenchmark.Config config;
+        try {
+            config = readConfig();
+        } catch (IllegalArgumentException ex) {
+            showAlert("Input Error", ex.getMessage());
+            return;
         }
+        
+        BatchBenchmark benchmark = new BatchBenchmark(pool, rewritePool);
+        runningBenchmark = benchmark;
+        setBenchmarkRunning(true);
+        btnBenchmark.setDisable(false);
+        btnBenchmark.setText("Cancel Benchmark");
+        taOutput.appendText(String.format("Benchmark: %,d rows, %d warm-up and %d measured run(s)%n",
+                config.getRows(), config.getWarmupIterations(), config.getMeasuredIterations()));
+        
+        runInBackground(() -> {
+            try {
+                benchmark.run(config, line -> Platform.runLater(() -> taOutput.appendText(line + "\n")));
+                Platform.runLater(() -> taOutput.appendText("Benchmark finished\n\n"));
+            } catch (SQLException ex) {
+                Platform.runLater(() -> showAlert("Database Error", "Benchmark failed: " + ex.getMessage()));
+            } finally {
+                Platform.runLater(() -> {
+                    runningBenchmark = null;
+                    btnBenchmark.setText("Run Benchmark");
+                    setBenchmarkRunning(false);
+                });
+            }
+        });
     }
     
     /**
-     * Performs non-batch update - inserts 1000 records individually
+     * Inserts the rows over K = 1, 2, 4, ... connections in parallel and reports
+     * per-worker and aggregate throughput for each K
      */
-    private void performNonBatchUpdate() {
-        if (connection == null) {
-            showAlert("Connection Error", "Please connect to database first.");
+    private void runParallelSweep() {
+        BatchBenchmark.Config config;
+        int maxConnections;
+        try {
+            config = readConfig();
+            maxConnections = Integer.parseInt(tfConnections.getText().trim());
+        } catch (IllegalArgumentException ex) {
+            showAlert("Input Error", ex.getMessage());
+            return;
+        }
+        if (maxConnections < 1 || maxConnections > POOL_MAX_SIZE) {
+            showAlert("Input Error", "Max connections must be between 1 and " + POOL_MAX_SIZE);
             return;
         }
         
+        ParallelInserter inserter = new ParallelInserter(pool, config.newGenerator());
+        setBenchmarkRunning(true);
+        taOutput.appendText(String.format("Parallel insert: %,d rows, batch size %d, up to %d connections%n",
+                config.getRows(), config.getBatchSizes()[0], maxConnections));
+        
+        runInBackground(() -> {
+            try {
+                inserter.sweep(config.getRows(), maxConnections, config.getBatchSizes()[0],
+                        line -> Platform.runLater(() -> taOutput.appendText(line + "\n")));
+                Platform.runLater(() -> taOutput.appendText("Parallel sweep finished\n\n"));
+            } catch (SQLException ex) {
+                Platform.runLater(() -> showAlert("Database Error", "Parallel insert failed: " + ex.getMessage()));
+            } finally {
+                Platform.runLater(() -> setBenchmarkRunning(false));
+            }
+        });
+    }
+    
+    /**
+     * Inserts the rows with K writers that generate and then execute each batch, then
+     * through the producer/writer pipeline with the same K writers, and reports how
+     * much the overlap saved
+     */
+    private void runPipelineComparison() {
+        BatchBenchmark.Config config;
+        int writers;
+        int producers;
         try {
-            // Clear previous data
-            Statement stmt = connection.createStatement();
-            stmt.executeUpdate("DELETE FROM Temp");
-            stmt.close();
-            
-            long startTime = System.currentTimeMillis();
-            
-            // Prepare statement for individual inserts
-            String sql = "INSERT INTO Temp (num1, num2, num3) VALUES (?, ?, ?)";
-            PreparedStatement pstmt = connection.prepareStatement(sql);
-            
-            // Execute 1000 individual inserts
-            for (int i = 0; i < 1000; i++) {
-                pstmt.setDouble(1, Math.random());
-                pstmt.setDouble(2, Math.random());
-                pstmt.setDouble(3, Math.random());
-                pstmt.executeUpdate();
+            config = readConfig();
+            writers = Integer.parseInt(tfConnections.getText().trim());
+            producers = Integer.parseInt(tfProducers.getText().trim());
+        } catch (IllegalArgumentException ex) {
+            showAlert("Input Error", ex.getMessage());
+            return;
+        }
+        if (writers < 1 || writers > POOL_MAX_SIZE || producers < 1) {
+            showAlert("Input Error", "Writers must be between 1 and " + POOL_MAX_SIZE
+                    + " and producers must be positive");
+            return;
+        }
+        
+        PipelinedInserter inserter = new PipelinedInserter(pool, config.newGenerator());
+        setBenchmarkRunning(true);
+        taOutput.appendText(String.format("Pipelined insert: %,d rows, batch size %d, %d writer(s) without and"
+                + " with %d producer(s) overlapping them%n", config.getRows(), config.getBatchSizes()[0], writers,
+                producers));
+        
+        runInBackground(() -> {
+            try {
+                inserter.compare(config.getRows(), config.getBatchSizes()[0], producers, writers,
+                        line -> Platform.runLater(() -> taOutput.appendText(line + "\n")));
+                Platform.runLater(() -> taOutput.appendText("Pipeline comparison finished\n\n"));
+            } catch (SQLException ex) {
+                Platform.runLater(() -> showAlert("Database Error", "Pipelined insert failed: " + ex.getMessage()));
+            } finally {
+                Platform.runLater(() -> setBenchmarkRunning(false));
             }
-            
-            pstmt.close();
-            
-            long endTime = System.currentTimeMillis();
-            long elapsedTime = endTime - startTime;
-            
-            taOutput.appendText("Non-batch update completed\n");
-            taOutput.appendText("The elapsed time is " + elapsedTime + " milliseconds\n\n");
-            
-        } catch (SQLException ex) {
-            showAlert("Database Error", "Non-batch update failed: " + ex.getMessage());
+        });
+    }
+    
+    /**
+     * Reads the benchmark settings; throws IllegalArgumentException for invalid input
+     */
+    private BatchBenchmark.Config readConfig() {
+        BatchBenchmark.Config config = new BatchBenchmark.Config();
+        try {
+            config.setRows(Integer.parseInt(tfRows.getText().trim()));
+            config.setBatchSizes(BatchBenchmark.Config.parseBatchSizes(tfBatchSizes.getText()));
+            config.setWarmupIterations(Integer.parseInt(tfWarmups.getText().trim()));
+            config.setMeasuredIterations(Integer.parseInt(tfIterations.getText().trim()));
+            config.setSeed(Long.parseLong(tfSeed.getText().trim()));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Benchmark settings must be whole numbers");
+        }
+        
+        Set<BatchBenchmark.Strategy> strategies = EnumSet.noneOf(BatchBenchmark.Strategy.class);
+        strategyBoxes.forEach((strategy, box) -> {
+            if (box.isSelected()) {
+                strategies.add(strategy);
+            }
+        });
+        config.setStrategies(strategies);
+        config.setDistribution(DataGenerator.named(cbDistribution.getValue()));
+        return config;
+    }
+    
+    /**
+     * Disables the insert buttons while a run is in progress
+     */
+    private void setBenchmarkRunning(boolean running) {
+        btnBatchUpdate.setDisable(running);
+        btnNonBatchUpdate.setDisable(running);
+        btnBenchmark.setDisable(running);
+        btnParallel.setDisable(running);
+        btnPipeline.setDisable(running);
+    }
+    
+    /**
+     * Runs database work on a daemon thread so the window stays responsive
+     */
+    private void runInBackground(Runnable work) {
+        Thread thread = new Thread(work, "temp-benchmark");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Exports the Temp table to a CSV or binary file on a background thread,
+     * or cancels the export that is running
+     */
+    private void exportTemp() {
+        if (runningExport != null) {
+            runningExport.cancel();
+            return;
+        }
+        
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Temp");
+        chooser.setInitialFileName("temp.bin");
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Binary files", "*.bin"),
+                new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+        File file = chooser.showSaveDialog(taOutput.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        
+        TableExporter exporter = new TableExporter(TableExporter.formatFor(file.toPath()));
+        runningExport = exporter;
+        btnExport.setText("Cancel Export");
+        taOutput.appendText("Exporting Temp to " + file + "\n");
+        
+        Thread exportThread = new Thread(() -> {
+            try (Connection connection = pool.getConnection()) {
+                TableExporter.Stats stats = exporter.export(connection, "Temp", file.toPath(), progress -> {
+                    String line = "  " + progress + "\n";
+                    Platform.runLater(() -> taOutput.appendText(line));
+                });
+                Platform.runLater(() -> taOutput.appendText("Export finished: " + stats + "\n\n"));
+            } catch (Exception ex) {
+                Platform.runLater(() -> showAlert("Export Error", "Export failed: " + ex.getMessage()));
+            } finally {
+                Platform.runLater(() -> {
+                    runningExport = null;
+                    btnExport.setText("Export Temp");
+                });
+            }
+        }, "temp-export");
+        exportThread.setDaemon(true);
+        exportThread.start();
+    }
+    
+    /**
+     * Loads Temp into memory column by column, or generates the rows there, and times
+     * the same aggregates on the columns and as SQL
+     */
+    private void analyzeTemp() {
+        boolean generate = cbGenerateColumns.isSelected();
+        BatchBenchmark.Config config;
+        try {
+            config = readConfig();
+        } catch (IllegalArgumentException ex) {
+            showAlert("Input Error", ex.getMessage());
+            return;
         }
+        if (!generate && pool == null) {
+            showAlert("Connection Error", "Please connect to database first.");
+            return;
+        }
+        
+        btnAnalyze.setDisable(true);
+        taOutput.appendText(generate
+                ? String.format("Generating %,d rows in memory%n", config.getRows())
+                : "Loading Temp into memory\n");
+        
+        Thread thread = new Thread(() -> {
+            try {
+                long start = System.nanoTime();
+                TempAnalyzer.Result[] results;
+                if (generate) {
+                    TempColumns columns = TempColumns.generate(config.newGenerator(), config.getRows());
+                    log(String.format("Generated %,d rows in %.1f ms", columns.size(),
+                            (System.nanoTime() - start) / 1e6));
+                    results = new TempAnalyzer(columns, TempAnalyzer.DEFAULT_REPETITIONS)
+                            .compare(null, TempAnalyzer.DEFAULT_BUCKETS, this::log);
+                } else {
+                    try (Connection connection = pool.getConnection()) {
+                        TempColumns columns = TempColumns.load(connection,
+                                rows -> log(String.format("  %,d rows loaded", rows)));
+                        log(String.format("Loaded %,d rows in %.1f ms", columns.size(),
+                                (System.nanoTime() - start) / 1e6));
+                        results = new TempAnalyzer(columns, TempAnalyzer.DEFAULT_REPETITIONS)
+                                .compare(connection, TempAnalyzer.DEFAULT_BUCKETS, this::log);
+                    }
+                }
+                log("Columnar analysis finished (" + results.length + " queries)\n");
+            } catch (SQLException ex) {
+                Platform.runLater(() -> showAlert("Database Error", "Analysis failed: " + ex.getMessage()));
+            } catch (OutOfMemoryError ex) {
+                Platform.runLater(() -> showAlert("Memory Error",
+                        "Not enough heap for the columns; raise -Xmx or use fewer rows"));
+            } finally {
+                Platform.runLater(() -> btnAnalyze.setDisable(false));
+            }
+        }, "temp-analysis");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Appends a line to the output from any thread
+     */
+    private void log(String line) {
+        Platform.runLater(() -> taOutput.appendText(line + "\n"));
+    }
+    
+    /**
+     * Opens a chart of the Temp rows, downsampled to the window width
+     */
+    private void showChart() {
+        TempChartPanel chartPanel = new TempChartPanel(pool);
+        Stage chartStage = new Stage();
+        chartStage.setTitle("Temp Chart");
+        chartStage.setScene(new Scene(chartPanel, 1000, 600));
+        chartStage.setOnHidden(e -> chartPanel.close());
+        chartStage.show();
+    }
+    
+    /**
+     * Opens the live JDBC metrics window
+     */
+    private void showMetrics() {
+        Stage metricsStage = new Stage();
+        metricsStage.setTitle("JDBC Metrics");
+        metricsStage.setScene(new Scene(new MetricsPanel(pool, metrics), 900, 500));
+        metricsStage.show();
     }
     
     /**
@@ -289,16 +664,25 @@ public class Exercise35_01 extends Application {
     }
     
     /**
-     * Closes the database connection
+     * Closes the database connections
      */
     private void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed successfully.");
-            }
-        } catch (SQLException ex) {
-            System.err.println("Error closing database connection: " + ex.getMessage());
+        boolean open = pool != null;
+        closePools();
+        if (open) {
+            System.out.println("Database connection closed successfully.");
+        }
+    }
+
+    /**
+     * Closes both pools without reporting, e.g. when a new connection replaces them
+     */
+    private void closePools() {
+        if (rewritePool != null) {
+            rewritePool.close();
+        }
+        if (pool != null) {
+            pool.close();
         }
     }
     
@@ -0,0 +1,136 @@
+package fx;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Times the execute methods of a Statement or PreparedStatement and records them in
+ * {@link JdbcMetrics}, together with update counts, rows read and batch sizes.
+ * Prepared statements are recorded under their SQL text, plain statements under the
+ * SQL passed to each execute call. Only created while metrics are enabled.
+ */
+class InstrumentedStatement implements InvocationHandler {
+
+    private final Statement target;
+    private final JdbcMetrics metrics;
+    private final JdbcMetrics.SqlStats preparedStats;
+    private int pendingBatch;
+
+    private InstrumentedStatement(Statement target, JdbcMetrics metrics, String preparedSql) {
+        this.target = target;
+        this.metrics = metrics;
+        this.preparedStats = preparedSql == null ? null : metrics.statsFor(preparedSql);
+    }
+
+    static PreparedStatement wrap(PreparedStatement target, String sql, JdbcMetrics metrics) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, new InstrumentedStatement(target, metrics, sql));
+    }
+
+    static Statement wrap(Statement target, JdbcMetrics metrics) {
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                new Class<?>[] { Statement.class }, new InstrumentedStatement(target, metrics, null));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        switch (name) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "addBatch":
+                pendingBatch++;
+                return call(method, args);
+            case "clearBatch":
+                pendingBatch = 0;
+                return call(method, args);
+            default:
+                if (!name.startsWith("execute")) {
+                    return call(method, args);
+                }
+        }
+
+        JdbcMetrics.SqlStats stats = preparedStats;
+        if (args != null && args.length > 0 && args[0] instanceof String) {
+            stats = metrics.statsFor((String) args[0]);
+        }
+        if (stats == null) {
+            // executeBatch() of a plain statement: the SQL texts were passed to addBatch
+            stats = metrics.statsFor("(statement batch)");
+        }
+
+        long start = System.nanoTime();
+        Object result = call(method, args);
+        long nanos = System.nanoTime() - start;
+
+        if (name.equals("executeBatch") || name.equals("executeLargeBatch")) {
+            int batchSize = pendingBatch;
+            pendingBatch = 0;
+            stats.recordBatch(nanos, batchSize, sumCounts(result));
+        } else if (result instanceof ResultSet) {
+            stats.recordExecute(nanos, 0);
+            return countingResultSet((ResultSet) result, stats);
+        } else if (result instanceof Integer || result instanceof Long) {
+            stats.recordExecute(nanos, ((Number) result).longValue());
+        } else {
+            stats.recordExecute(nanos, 0);
+        }
+        return result;
+    }
+
+    private Object call(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private static long sumCounts(Object counts) {
+        long rows = 0;
+        if (counts instanceof int[]) {
+            for (int count : (int[]) counts) {
+                rows += Math.max(0, count); // SUCCESS_NO_INFO is negative
+            }
+        } else if (counts instanceof long[]) {
+            for (long count : (long[]) counts) {
+                rows += Math.max(0, count);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Wraps a result set so every row read is counted
+     */
+    private static ResultSet countingResultSet(ResultSet resultSet, JdbcMetrics.SqlStats stats) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(resultSet, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                    if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                        stats.recordRowRead();
+                    }
+                    return result;
+                });
+    }
+}
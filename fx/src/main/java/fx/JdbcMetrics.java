@@ -0,0 +1,273 @@
+package fx;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Low-overhead JDBC metrics: per-SQL latency histograms, row counts and batch sizes,
+ * plus a histogram of connection acquire times. Attach it to a pool with
+ * {@link ConnectionPool#setMetrics(JdbcMetrics)}; while it is enabled the pool wraps
+ * every statement it hands out in a recording proxy. While it is disabled statements
+ * are handed out unwrapped, so the only cost left is one volatile read per
+ * prepareStatement() and per borrow.
+ */
+public class JdbcMetrics {
+
+    // Statements are keyed by SQL text; generated SQL beyond this many shapes is lumped together
+    private static final int MAX_TRACKED_SQL = 500;
+    private static final String OTHER_SQL = "(other statements)";
+
+    private final ConcurrentHashMap<String, SqlStats> statements = new ConcurrentHashMap<>();
+    private final LatencyHistogram acquire = new LatencyHistogram();
+    private volatile boolean enabled;
+    private volatile long resetMillis = System.currentTimeMillis();
+
+    public JdbcMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Statements prepared while disabled stay unrecorded, even after enabling
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Forgets everything recorded so far
+     */
+    public void reset() {
+        statements.clear();
+        acquire.clear();
+        resetMillis = System.currentTimeMillis();
+    }
+
+    void recordAcquire(long nanos) {
+        acquire.record(nanos);
+    }
+
+    public LatencyHistogram getAcquireHistogram() {
+        return acquire;
+    }
+
+    /**
+     * The statistics of one SQL text, created on first use
+     */
+    SqlStats statsFor(String sql) {
+        SqlStats stats = statements.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+        String key = statements.size() < MAX_TRACKED_SQL ? sql : OTHER_SQL;
+        return statements.computeIfAbsent(key, SqlStats::new);
+    }
+
+    /**
+     * Statistics of every SQL text seen, by total time spent, highest first
+     */
+    public List<SqlStats> getStatements() {
+        List<SqlStats> list = new ArrayList<>(statements.values());
+        list.sort(Comparator.comparingLong((SqlStats stats) -> stats.latency.getTotalNanos()).reversed());
+        return list;
+    }
+
+    /**
+     * A plain-text report of everything recorded since the last reset
+     */
+    public String report() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("JDBC metrics over %.1f s%s%n",
+                (System.currentTimeMillis() - resetMillis) / 1000.0, enabled ? "" : " (disabled)"));
+        text.append(String.format("connection acquire: %s%n%n", acquire));
+        for (SqlStats stats : getStatements()) {
+            text.append(stats.getSql()).append(System.lineSeparator());
+            text.append(String.format("    %s%n", stats.latency));
+            text.append(String.format("    rows=%,d", stats.getRows()));
+            if (stats.getBatches() > 0) {
+                text.append(String.format("  batches=%,d  avgBatch=%.1f  maxBatch=%d",
+                        stats.getBatches(), stats.getAverageBatchSize(), stats.getMaxBatchSize()));
+            }
+            text.append(String.format("%n"));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Writes the report to a text file
+     */
+    public void writeReport(Path file) throws IOException {
+        Files.write(file, report().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * What was recorded for one SQL text
+     */
+    public static class SqlStats {
+        private final String sql;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder batchedRows = new LongAdder();
+        private final AtomicLong maxBatchSize = new AtomicLong();
+
+        SqlStats(String sql) {
+            this.sql = sql;
+        }
+
+        void recordExecute(long nanos, long rowCount) {
+            latency.record(nanos);
+            if (rowCount > 0) {
+                rows.add(rowCount);
+            }
+        }
+
+        void recordBatch(long nanos, int batchSize, long rowCount) {
+            recordExecute(nanos, rowCount);
+            batches.increment();
+            batchedRows.add(batchSize);
+            maxBatchSize.accumulateAndGet(batchSize, Math::max);
+        }
+
+        void recordRowRead() {
+            rows.increment();
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * Rows updated plus rows read
+         */
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public long getBatches() {
+            return batches.sum();
+        }
+
+        public double getAverageBatchSize() {
+            long count = batches.sum();
+            return count == 0 ? 0 : (double) batchedRows.sum() / count;
+        }
+
+        public long getMaxBatchSize() {
+            return maxBatchSize.get();
+        }
+    }
+
+    /**
+     * A lock-free histogram of durations with four buckets per power of two of
+     * microseconds, so percentiles are accurate to within 25%
+     */
+    public static class LatencyHistogram {
+
+        // Four sub-buckets per power of two up to 2^40 microseconds (about 12 days)
+        private static final int BUCKETS = 164;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        LatencyHistogram() {
+        }
+
+        void record(long nanos) {
+            counts.incrementAndGet(bucket(nanos / 1000));
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        void clear() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+            count.reset();
+            totalNanos.reset();
+            maxNanos.set(0);
+        }
+
+        static int bucket(long micros) {
+            if (micros < 4) {
+                return (int) Math.max(0, micros);
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            int sub = (int) (micros >>> (exponent - 2)) & 3;
+            return Math.min(BUCKETS - 1, (exponent - 1) * 4 + sub);
+        }
+
+        /**
+         * Exclusive upper bound of a bucket in microseconds
+         */
+        static long bucketLimit(int bucket) {
+            if (bucket < 4) {
+                return bucket + 1;
+            }
+            int exponent = bucket / 4 + 1;
+            return (long) (4 + bucket % 4 + 1) << (exponent - 2);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given percentile, never above the maximum
+         */
+        public double percentileMillis(double percentile) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(bucketLimit(i) / 1000.0, getMaxMillis());
+                }
+            }
+            return getMaxMillis();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%,d mean=%.3f ms p50=%.3f ms p95=%.3f ms p99=%.3f ms max=%.3f ms total=%.1f ms",
+                    getCount(), getMeanMillis(), percentileMillis(50), percentileMillis(95),
+                    percentileMillis(99), getMaxMillis(), getTotalNanos() / 1e6);
+        }
+    }
+}
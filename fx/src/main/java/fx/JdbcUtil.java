@@ -0,0 +1,37 @@
+package fx;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Small JDBC helpers shared by the data access classes.
+ */
+public final class JdbcUtil {
+
+    // Fetch size used by drivers that do not have a row-by-row streaming mode
+    private static final int DEFAULT_STREAMING_FETCH_SIZE = 1000;
+
+    private JdbcUtil() {
+    }
+
+    /**
+     * Adds a driver property to a JDBC URL, e.g. rewriteBatchedStatements=true
+     */
+    public static String withProperty(String url, String key, String value) {
+        return url + (url.indexOf('?') < 0 ? "?" : "&") + key + "=" + value;
+    }
+
+    /**
+     * Makes a forward-only, read-only statement stream its results instead of
+     * buffering the whole result set. MySQL Connector/J streams row by row only when
+     * the fetch size is Integer.MIN_VALUE; other drivers honour a positive fetch size.
+     */
+    public static void enableStreaming(Statement statement) throws SQLException {
+        String product = statement.getConnection().getMetaData().getDatabaseProductName();
+        if ("MySQL".equalsIgnoreCase(product)) {
+            statement.setFetchSize(Integer.MIN_VALUE);
+        } else {
+            statement.setFetchSize(DEFAULT_STREAMING_FETCH_SIZE);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package fx;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Supplier;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.stage.FileChooser;
+import javafx.util.Duration;
+
+/**
+ * Live view of the {@link JdbcMetrics} attached to a connection pool, after the pool's
+ * statistics and any the application adds. The report is refreshed once a second while
+ * the panel is shown; recording can be switched on and off, reset, and exported to a text file.
+ */
+class MetricsPanel extends BorderPane {
+
+    private static final Duration REFRESH_INTERVAL = Duration.seconds(1);
+
+    private final ConnectionPool pool;
+    private final JdbcMetrics metrics;
+    private final Supplier<String> statistics;
+    private final TextArea taReport = new TextArea();
+    private final Timeline refresh = new Timeline(new KeyFrame(REFRESH_INTERVAL, e -> refresh()));
+
+    MetricsPanel(ConnectionPool pool, JdbcMetrics metrics) {
+        this(pool, metrics, () -> "");
+    }
+
+    /**
+     * A panel that also shows the lines the supplier returns, each ending with a line separator
+     */
+    MetricsPanel(ConnectionPool pool, JdbcMetrics metrics, Supplier<String> statistics) {
+        this.pool = pool;
+        this.metrics = metrics;
+        this.statistics = statistics;
+
+        taReport.setEditable(false);
+        taReport.setStyle("-fx-font-family: monospace;");
+
+        CheckBox cbEnabled = new CheckBox("Record");
+        cbEnabled.setSelected(metrics.isEnabled());
+        cbEnabled.setOnAction(e -> {
+            metrics.setEnabled(cbEnabled.isSelected());
+            refresh();
+        });
+        Button btReset = new Button("Reset");
+        btReset.setOnAction(e -> {
+            metrics.reset();
+            refresh();
+        });
+        Button btExport = new Button("Export...");
+        btExport.setOnAction(e -> export());
+
+        HBox toolbar = new HBox(10, cbEnabled, btReset, btExport);
+        toolbar.setAlignment(Pos.CENTER_LEFT);
+        toolbar.setPadding(new Insets(5));
+        setTop(toolbar);
+        setCenter(taReport);
+
+        refresh.setCycleCount(Animation.INDEFINITE);
+        // Only refresh while the panel is on screen
+        sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene == null) {
+                refresh.stop();
+            } else {
+                refresh();
+                refresh.play();
+            }
+        });
+    }
+
+    private void refresh() {
+        String current = taReport.getText();
+        double scrollTop = taReport.getScrollTop();
+        String report = pool.getStatistics() + System.lineSeparator() + statistics.get() + metrics.report();
+        if (!report.equals(current)) {
+            taReport.setText(report);
+            taReport.setScrollTop(scrollTop);
+        }
+    }
+
+    private void export() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export JDBC Metrics");
+        chooser.setInitialFileName("jdbc-metrics.txt");
+        File file = chooser.showSaveDialog(getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        try {
+            metrics.writeReport(file.toPath());
+        } catch (IOException ex) {
+            Alert alert = new Alert(Alert.AlertType.ERROR, "Export failed: " + ex.getMessage());
+            alert.setHeaderText(null);
+            alert.showAndWait();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package fx;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Loads N rows into Temp by splitting them into K partitions that are inserted
+ * concurrently, one worker thread and one pooled connection per partition.
+ * All workers borrow their connection before a common start signal, so the
+ * measured time covers only the inserts. Each worker draws its values from its own
+ * {@link DataGenerator}, so generation does not serialize the threads. A sweep over
+ * K shows how throughput scales with writer concurrency.
+ */
+public class ParallelInserter {
+
+    /**
+     * Timing of one worker
+     */
+    public static class WorkerResult {
+        private final int worker;
+        private final int rows;
+        private final long nanos;
+        private final long generateNanos;
+
+        WorkerResult(int worker, int rows, long nanos, long generateNanos) {
+            this.worker = worker;
+            this.rows = rows;
+            this.nanos = nanos;
+            this.generateNanos = generateNanos;
+        }
+
+        public int getWorker() {
+            return worker;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public double getMillis() {
+            return nanos / 1e6;
+        }
+
+        /**
+         * Part of the worker time spent generating values
+         */
+        public double getGenerateMillis() {
+            return generateNanos / 1e6;
+        }
+
+        public double getRowsPerSecond() {
+            return rows / (nanos / 1e9);
+        }
+    }
+
+    /**
+     * Timing of one run with K connections
+     */
+    public static class Result {
+        private final int connections;
+        private final int rows;
+        private final long wallNanos;
+        private final List<WorkerResult> workers;
+
+        Result(int connections, int rows, long wallNanos, List<WorkerResult> workers) {
+            this.connections = connections;
+            this.rows = rows;
+            this.wallNanos = wallNanos;
+            this.workers = workers;
+        }
+
+        public int getConnections() {
+            return connections;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public double getWallMillis() {
+            return wallNanos / 1e6;
+        }
+
+        /**
+         * All rows divided by the wall-clock time of the slowest worker
+         */
+        public double getRowsPerSecond() {
+            return rows / (wallNanos / 1e9);
+        }
+
+        public List<WorkerResult> getWorkers() {
+            return workers;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(String.format("K=%-3d %,d rows in %.2f ms  %,.0f rows/s",
+                    connections, rows, getWallMillis(), getRowsPerSecond()));
+            for (WorkerResult worker : workers) {
+                text.append(String.format("%n      worker %-3d %,10d rows  %10.2f ms  %,12.0f rows/s  generate=%.2f ms",
+                        worker.getWorker(), worker.getRows(), worker.getMillis(), worker.getRowsPerSecond(),
+                        worker.getGenerateMillis()));
+            }
+            return text.toString();
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final DataGenerator generator;
+
+    public ParallelInserter(ConnectionPool pool) {
+        this(pool, new DataGenerator());
+    }
+
+    /**
+     * Worker w takes its values from generator.forWorker(w)
+     */
+    public ParallelInserter(ConnectionPool pool, DataGenerator generator) {
+        this.pool = pool;
+        this.generator = generator;
+    }
+
+    /**
+     * Empties Temp and inserts rows over the given number of connections
+     */
+    public Result run(int rows, int connections, int batchSize) throws SQLException {
+        if (connections < 1 || connections > pool.getMaxSize()) {
+            throw new IllegalArgumentException("Connections must be between 1 and the pool size "
+                    + pool.getMaxSize());
+        }
+        try (Connection connection = pool.getConnection()) {
+            BatchBenchmark.clearTable(connection);
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(connections, r -> {
+            Thread thread = new Thread(r, "temp-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CountDownLatch ready = new CountDownLatch(connections);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<WorkerResult>> futures = new ArrayList<>();
+            for (int w = 0; w < connections; w++) {
+                int worker = w;
+                // Spread the remainder over the first partitions
+                int partition = rows / connections + (w < rows % connections ? 1 : 0);
+                DataGenerator workerGenerator = generator.forWorker(w);
+                futures.add(workers.submit(() -> {
+                    boolean counted = false;
+                    try (Connection connection = pool.getConnection()) {
+                        ready.countDown();
+                        counted = true;
+                        start.await();
+                        long startTime = System.nanoTime();
+                        BatchBenchmark.insertBatched(connection, partition, batchSize, workerGenerator);
+                        return new WorkerResult(worker, partition, System.nanoTime() - startTime,
+                                workerGenerator.getGenerateNanos());
+                    } finally {
+                        if (!counted) {
+                            ready.countDown(); // Never leave the coordinator waiting if borrowing failed
+                        }
+                    }
+                }));
+            }
+
+            ready.await();
+            long startTime = System.nanoTime();
+            start.countDown();
+            List<WorkerResult> results = new ArrayList<>();
+            for (Future<WorkerResult> future : futures) {
+                results.add(future.get());
+            }
+            return new Result(connections, rows, System.nanoTime() - startTime, results);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted during parallel insert", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            throw cause instanceof SQLException ? (SQLException) cause
+                    : new SQLException("Parallel insert failed: " + cause, cause);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs K = 1, 2, 4, ... up to maxConnections and logs each result with its
+     * speedup over a single connection
+     */
+    public List<Result> sweep(int rows, int maxConnections, int batchSize, Consumer<String> log)
+            throws SQLException {
+        List<Integer> steps = new ArrayList<>();
+        for (int k = 1; k < maxConnections; k *= 2) {
+            steps.add(k);
+        }
+        steps.add(maxConnections);
+
+        List<Result> results = new ArrayList<>();
+        double baseline = 0;
+        for (int k : steps) {
+            Result result = run(rows, k, batchSize);
+            if (k == 1) {
+                baseline = result.getRowsPerSecond();
+            }
+            results.add(result);
+            double speedup = result.getRowsPerSecond() / baseline;
+            log.accept(result + String.format("%n      speedup %.2fx, efficiency %.0f%%",
+                    speedup, speedup / k * 100));
+        }
+        return results;
+    }
+}
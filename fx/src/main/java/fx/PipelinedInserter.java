@@ -0,0 +1,402 @@
+package fx;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Loads N rows into Temp with row generation and JDBC execution overlapped.
+ * Producer threads fill primitive batch buffers and hand them to writer threads
+ * over a bounded queue; each writer binds a full buffer to its own pooled
+ * connection, executes the batch and returns the buffer for reuse. Only a fixed
+ * set of buffers exists, so producers that get ahead of the database block until
+ * a writer frees one, and the steady state allocates nothing.
+ *
+ * The serial path runs the same number of writers, each filling a buffer and then
+ * executing it on its own connection, the way the Batch strategy of {@link BatchBenchmark}
+ * does, and times both phases. Compared at the same writer count, the two paths differ
+ * only in the overlap of generation and execution.
+ */
+public class PipelinedInserter {
+
+    /**
+     * Values of up to batchSize rows, three doubles per row
+     */
+    static final class RowBuffer {
+        final double[] values;
+        int rows;
+
+        RowBuffer(int batchSize) {
+            this.values = new double[batchSize * 3];
+        }
+    }
+
+    // Tells a writer that every batch has been produced
+    private static final RowBuffer END = new RowBuffer(0);
+
+    /**
+     * Timing of one run; times summed over threads are thread-nanoseconds, not wall time
+     */
+    public static class Result {
+        private final String mode;
+        private final int rows;
+        private final int batchSize;
+        private final long wallNanos;
+        private final long generateNanos;
+        private final long executeNanos;
+        private final long producerStallNanos;
+        private final long writerIdleNanos;
+
+        Result(String mode, int rows, int batchSize, long wallNanos, long generateNanos,
+                long executeNanos, long producerStallNanos, long writerIdleNanos) {
+            this.mode = mode;
+            this.rows = rows;
+            this.batchSize = batchSize;
+            this.wallNanos = wallNanos;
+            this.generateNanos = generateNanos;
+            this.executeNanos = executeNanos;
+            this.producerStallNanos = producerStallNanos;
+            this.writerIdleNanos = writerIdleNanos;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public double getWallMillis() {
+            return wallNanos / 1e6;
+        }
+
+        /**
+         * Time spent filling buffers, summed over producers
+         */
+        public double getGenerateMillis() {
+            return generateNanos / 1e6;
+        }
+
+        /**
+         * Time spent binding and executing batches, summed over writers
+         */
+        public double getExecuteMillis() {
+            return executeNanos / 1e6;
+        }
+
+        /**
+         * Time producers waited for a free buffer, i.e. back-pressure from the writers
+         */
+        public double getProducerStallMillis() {
+            return producerStallNanos / 1e6;
+        }
+
+        /**
+         * Time writers waited for a full buffer, i.e. the producers were the bottleneck
+         */
+        public double getWriterIdleMillis() {
+            return writerIdleNanos / 1e6;
+        }
+
+        public double getRowsPerSecond() {
+            return rows / (wallNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-10s %,d rows in %.2f ms  %,.0f rows/s  generate=%.2f ms  execute=%.2f ms"
+                    + "  producer stall=%.2f ms  writer idle=%.2f ms",
+                    mode, rows, getWallMillis(), getRowsPerSecond(), getGenerateMillis(),
+                    getExecuteMillis(), getProducerStallMillis(), getWriterIdleMillis());
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final DataGenerator generator;
+
+    public PipelinedInserter(ConnectionPool pool) {
+        this(pool, new DataGenerator());
+    }
+
+    /**
+     * Producer p takes its values from generator.forWorker(p); the serial path uses worker 0
+     */
+    public PipelinedInserter(ConnectionPool pool, DataGenerator generator) {
+        this.pool = pool;
+        this.generator = generator;
+    }
+
+    /**
+     * Empties Temp and inserts the rows on one thread and one connection,
+     * generating each batch and then executing it
+     */
+    public Result runSerial(int rows, int batchSize) throws SQLException {
+        return runSerial(rows, batchSize, 1);
+    }
+
+    /**
+     * Empties Temp and inserts the rows with the given number of writer threads, each on
+     * its own pooled connection, generating each batch and then executing it, so
+     * generation and execution never overlap within a writer
+     */
+    public Result runSerial(int rows, int batchSize, int writers) throws SQLException {
+        checkArguments(rows, batchSize);
+        checkWriters(writers);
+        try (Connection connection = pool.getConnection()) {
+            BatchBenchmark.clearTable(connection);
+        }
+
+        int batches = (rows + batchSize - 1) / batchSize;
+        AtomicInteger nextBatch = new AtomicInteger();
+        AtomicLong generateNanos = new AtomicLong();
+        AtomicLong executeNanos = new AtomicLong();
+
+        ExecutorService threads = Executors.newFixedThreadPool(writers, r -> {
+            Thread thread = new Thread(r, "temp-serial");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CountDownLatch ready = new CountDownLatch(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        try {
+            for (int w = 0; w < writers; w++) {
+                DataGenerator values = generator.forWorker(w);
+                futures.add(threads.submit(() -> {
+                    boolean counted = false;
+                    try (Connection connection = pool.getConnection();
+                            PreparedStatement pstmt = connection.prepareStatement(BatchBenchmark.INSERT_SQL)) {
+                        ready.countDown();
+                        counted = true;
+                        start.await();
+                        RowBuffer buffer = new RowBuffer(batchSize);
+                        long generate = 0;
+                        long execute = 0;
+                        int batch;
+                        while ((batch = nextBatch.getAndIncrement()) < batches) {
+                            long t0 = System.nanoTime();
+                            fill(buffer, Math.min(batchSize, rows - batch * batchSize), values);
+                            long t1 = System.nanoTime();
+                            execute(pstmt, buffer);
+                            generate += t1 - t0;
+                            execute += System.nanoTime() - t1;
+                        }
+                        generateNanos.addAndGet(generate);
+                        executeNanos.addAndGet(execute);
+                        return null;
+                    } finally {
+                        if (!counted) {
+                            ready.countDown(); // Never leave the coordinator waiting if borrowing failed
+                        }
+                    }
+                }));
+            }
+
+            ready.await();
+            long startTime = System.nanoTime();
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+            return new Result(String.format("serial W=%d", writers), rows, batchSize,
+                    System.nanoTime() - startTime, generateNanos.get(), executeNanos.get(), 0, 0);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted during serial insert", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            throw cause instanceof SQLException ? (SQLException) cause
+                    : new SQLException("Serial insert failed: " + cause, cause);
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    /**
+     * Empties Temp and inserts the rows with the given number of producer and
+     * writer threads; each writer uses its own pooled connection
+     */
+    public Result run(int rows, int batchSize, int producers, int writers) throws SQLException {
+        checkArguments(rows, batchSize);
+        if (producers < 1) {
+            throw new IllegalArgumentException("Producers must be positive");
+        }
+        checkWriters(writers);
+        try (Connection connection = pool.getConnection()) {
+            BatchBenchmark.clearTable(connection);
+        }
+
+        // One buffer in the hands of every thread plus two queued per writer
+        int bufferCount = producers + writers * 3;
+        BlockingQueue<RowBuffer> free = new ArrayBlockingQueue<>(bufferCount);
+        BlockingQueue<RowBuffer> full = new ArrayBlockingQueue<>(bufferCount + writers);
+        for (int i = 0; i < bufferCount; i++) {
+            free.add(new RowBuffer(batchSize));
+        }
+
+        int batches = (rows + batchSize - 1) / batchSize;
+        AtomicInteger nextBatch = new AtomicInteger();
+        AtomicInteger activeProducers = new AtomicInteger(producers);
+        AtomicLong generateNanos = new AtomicLong();
+        AtomicLong executeNanos = new AtomicLong();
+        AtomicLong producerStallNanos = new AtomicLong();
+        AtomicLong writerIdleNanos = new AtomicLong();
+
+        ExecutorService threads = Executors.newFixedThreadPool(producers + writers, r -> {
+            Thread thread = new Thread(r, "temp-pipeline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<Void> completion = new ExecutorCompletionService<>(threads);
+        CountDownLatch ready = new CountDownLatch(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int w = 0; w < writers; w++) {
+                completion.submit(() -> {
+                    boolean counted = false;
+                    try (Connection connection = pool.getConnection();
+                            PreparedStatement pstmt = connection.prepareStatement(BatchBenchmark.INSERT_SQL)) {
+                        ready.countDown();
+                        counted = true;
+                        start.await();
+                        long idle = 0;
+                        long busy = 0;
+                        while (true) {
+                            long t0 = System.nanoTime();
+                            RowBuffer buffer = full.take();
+                            long t1 = System.nanoTime();
+                            idle += t1 - t0;
+                            if (buffer == END) {
+                                break;
+                            }
+                            execute(pstmt, buffer);
+                            busy += System.nanoTime() - t1;
+                            free.put(buffer);
+                        }
+                        executeNanos.addAndGet(busy);
+                        writerIdleNanos.addAndGet(idle);
+                        return null;
+                    } finally {
+                        if (!counted) {
+                            ready.countDown(); // Never leave the coordinator waiting if borrowing failed
+                        }
+                    }
+                });
+            }
+            for (int p = 0; p < producers; p++) {
+                DataGenerator values = generator.forWorker(p);
+                completion.submit(() -> {
+                    start.await();
+                    long stall = 0;
+                    long busy = 0;
+                    int batch;
+                    while ((batch = nextBatch.getAndIncrement()) < batches) {
+                        long t0 = System.nanoTime();
+                        RowBuffer buffer = free.take();
+                        long t1 = System.nanoTime();
+                        fill(buffer, Math.min(batchSize, rows - batch * batchSize), values);
+                        full.put(buffer);
+                        stall += t1 - t0;
+                        busy += System.nanoTime() - t1;
+                    }
+                    generateNanos.addAndGet(busy);
+                    producerStallNanos.addAndGet(stall);
+                    // The last producer to finish tells every writer to stop
+                    if (activeProducers.decrementAndGet() == 0) {
+                        for (int w = 0; w < writers; w++) {
+                            full.put(END);
+                        }
+                    }
+                    return null;
+                });
+            }
+
+            ready.await();
+            long startTime = System.nanoTime();
+            start.countDown();
+            // Take results in completion order so a failed writer cannot leave us waiting on a blocked producer
+            for (int i = 0; i < producers + writers; i++) {
+                completion.take().get();
+            }
+            return new Result(String.format("P=%d W=%d", producers, writers), rows, batchSize,
+                    System.nanoTime() - startTime, generateNanos.get(), executeNanos.get(),
+                    producerStallNanos.get(), writerIdleNanos.get());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted during pipelined insert", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            throw cause instanceof SQLException ? (SQLException) cause
+                    : new SQLException("Pipelined insert failed: " + cause, cause);
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the serial path and then the pipeline with the same writers, logging both and
+     * the time saved by the overlap
+     */
+    public Result[] compare(int rows, int batchSize, int producers, int writers, Consumer<String> log)
+            throws SQLException {
+        Result serial = runSerial(rows, batchSize, writers);
+        log.accept(serial.toString());
+        Result pipelined = run(rows, batchSize, producers, writers);
+        log.accept(pipelined.toString());
+        double saved = serial.getWallMillis() - pipelined.getWallMillis();
+        log.accept(String.format("      overlap saved %.2f ms (%.0f%%), speedup %.2fx at %d writer(s)",
+                saved, saved / serial.getWallMillis() * 100,
+                serial.getWallMillis() / pipelined.getWallMillis(), writers));
+        return new Result[] { serial, pipelined };
+    }
+
+    private static void checkArguments(int rows, int batchSize) {
+        if (rows < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Row count and batch size must be positive");
+        }
+    }
+
+    private void checkWriters(int writers) {
+        if (writers < 1 || writers > pool.getMaxSize()) {
+            throw new IllegalArgumentException("Writers must be between 1 and the pool size "
+                    + pool.getMaxSize());
+        }
+    }
+
+    /**
+     * Generates the rows of one batch
+     */
+    static void fill(RowBuffer buffer, int rows, DataGenerator generator) {
+        generator.fill(buffer.values, rows * 3);
+        buffer.rows = rows;
+    }
+
+    /**
+     * Binds every row of the buffer and executes them as one batch
+     */
+    static void execute(PreparedStatement pstmt, RowBuffer buffer) throws SQLException {
+        double[] values = buffer.values;
+        for (int r = 0, i = 0; r < buffer.rows; r++) {
+            pstmt.setDouble(1, values[i++]);
+            pstmt.setDouble(2, values[i++]);
+            pstmt.setDouble(3, values[i++]);
+            pstmt.addBatch();
+        }
+        pstmt.executeBatch();
+    }
+}
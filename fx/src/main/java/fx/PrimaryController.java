@@ -5,6 +5,9 @@ import javafx.fxml.FXML;
 
 public class PrimaryController {
 
+    public PrimaryController() {
+    }
+
     @FXML
     private void switchToSecondary() throws IOException {
         App.setRoot("secondary");
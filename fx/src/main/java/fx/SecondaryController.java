@@ -5,6 +5,9 @@ import javafx.fxml.FXML;
 
 public class SecondaryController {
 
+    public SecondaryController() {
+    }
+
     @FXML
     private void switchToPrimary() throws IOException {
         App.setRoot("primary");
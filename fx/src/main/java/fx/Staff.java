@@ -0,0 +1,97 @@
+package fx;
+
+/**
+ * A single row of the Staff table.
+ * Instances are immutable so they can be handed between the JavaFX
+ * Application Thread and background database threads.
+ */
+public class Staff {
+
+    private final String id;
+    private final String lastName;
+    private final String firstName;
+    private final String mi;
+    private final String address;
+    private final String city;
+    private final String state;
+    private final String telephone;
+    private final String email;
+
+    public Staff(String id, String lastName, String firstName, String mi, String address,
+            String city, String state, String telephone, String email) {
+        this.id = id;
+        this.lastName = lastName;
+        this.firstName = firstName;
+        this.mi = mi;
+        this.address = address;
+        this.city = city;
+        this.state = state;
+        this.telephone = telephone;
+        this.email = email;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getMi() {
+        return mi;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public String getTelephone() {
+        return telephone;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * Checks the fields required for an insert or update.
+     * Returns a message describing the first problem, or null if the record is valid.
+     */
+    public String validate() {
+        if (isBlank(id)) {
+            return "ID is required";
+        }
+
+        if (isBlank(lastName)) {
+            return "Last Name is required";
+        }
+
+        if (isBlank(firstName)) {
+            return "First Name is required";
+        }
+
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return id + " " + lastName + ", " + firstName;
+    }
+}
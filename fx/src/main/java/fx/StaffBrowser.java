@@ -0,0 +1,255 @@
+package fx;
+
+import java.util.List;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.control.Button;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableRow;
+import javafx.scene.control.TableView;
+import javafx.scene.control.skin.VirtualFlow;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+
+/**
+ * Browse mode for the Staff table.
+ * Rows are streamed in pages with keyset pagination on the id primary key. Only a
+ * bounded window of pages is kept in memory: scrolling down appends the next page
+ * (prefetched in the background) and drops pages from the top, scrolling up does the
+ * reverse, so the table stays smooth however many rows Staff holds. Until the database
+ * connects, pages come from the local snapshot when there is one; the snapshot sorts IDs
+ * differently, so the window starts again from the first record once the database connects.
+ */
+class StaffBrowser extends BorderPane {
+
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_PAGES = 5;
+    private static final int MAX_ROWS = PAGE_SIZE * MAX_PAGES;
+
+    // Start loading when a row this close to either end of the window is shown
+    private static final int LOAD_THRESHOLD = PAGE_SIZE / 4;
+
+    private final StaffDataAccess dataAccess;
+    private final ObservableList<Staff> rows = FXCollections.observableArrayList();
+    private final TableView<Staff> table = new TableView<>(rows);
+    private final Label lblStatus = new Label();
+    private final Button btRefresh = new Button("Refresh");
+
+    // Window state; only touched on the JavaFX Application Thread
+    private boolean noMoreBefore = true;
+    private boolean noMoreAfter;
+    private boolean loadingBefore;
+    private boolean loadingAfter;
+    private boolean wantAfter;
+    private List<Staff> prefetchedAfter;
+
+    // Whether the window was read from the local snapshot
+    private boolean localWindow;
+
+    // Lowest and highest row index shown since the last check, which runs once per pulse
+    private boolean checkPending;
+    private int lowestShown;
+    private int highestShown;
+
+    // Incremented whenever the window moves so late results from an old position are dropped
+    private int generation;
+
+    StaffBrowser(StaffDataAccess dataAccess, Consumer<Staff> onOpen) {
+        this.dataAccess = dataAccess;
+
+        StaffColumns.addTo(table);
+        // Order is fixed by the keyset on id
+        table.getColumns().forEach(column -> column.setSortable(false));
+
+        table.setRowFactory(tv -> {
+            TableRow<Staff> row = new TableRow<Staff>() {
+                @Override
+                public void updateIndex(int index) {
+                    super.updateIndex(index);
+                    if (index >= 0 && index < rows.size()) {
+                        onRowShown(index);
+                    }
+                }
+            };
+            row.setOnMouseClicked(e -> {
+                if (e.getClickCount() == 2 && !row.isEmpty()) {
+                    onOpen.accept(row.getItem());
+                }
+            });
+            return row;
+        });
+
+        btRefresh.setOnAction(e -> reload());
+
+        HBox bottom = new HBox(10, btRefresh, lblStatus);
+        bottom.setPadding(new Insets(5));
+        setCenter(table);
+        setBottom(bottom);
+
+        reload();
+    }
+
+    /**
+     * Discards the window and starts again from the first record
+     */
+    private void reload() {
+        generation++;
+        rows.clear();
+        noMoreBefore = true;
+        noMoreAfter = false;
+        loadingBefore = false;
+        loadingAfter = false;
+        prefetchedAfter = null;
+        wantAfter = true;
+        localWindow = dataAccess.isPagingLocally();
+        fetchAfter();
+    }
+
+    /**
+     * Starts again from the first record if the window came from the snapshot and the
+     * database has connected since. Returns whether it did.
+     */
+    private boolean reloadIfConnected() {
+        if (localWindow && !dataAccess.isPagingLocally()) {
+            reload();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records a row reused for an index, checking the window once after the layout pass
+     * instead of once per cell
+     */
+    private void onRowShown(int index) {
+        if (checkPending) {
+            lowestShown = Math.min(lowestShown, index);
+            highestShown = Math.max(highestShown, index);
+            return;
+        }
+        checkPending = true;
+        lowestShown = index;
+        highestShown = index;
+        // Loading changes the items, which is not allowed during layout
+        Platform.runLater(this::checkWindow);
+    }
+
+    private void checkWindow() {
+        checkPending = false;
+        if (highestShown >= rows.size() - LOAD_THRESHOLD) {
+            requestAfter();
+        } else if (lowestShown < LOAD_THRESHOLD) {
+            requestBefore();
+        }
+    }
+
+    /**
+     * Appends the next page, using the prefetched one when it is already here
+     */
+    private void requestAfter() {
+        if (prefetchedAfter != null) {
+            List<Staff> page = prefetchedAfter;
+            prefetchedAfter = null;
+            appendPage(page);
+            fetchAfter(); // Prefetch the page after this one
+        } else if (!noMoreAfter) {
+            wantAfter = true;
+            fetchAfter();
+        }
+    }
+
+    private void fetchAfter() {
+        if (loadingAfter || noMoreAfter || prefetchedAfter != null || reloadIfConnected()) {
+            return;
+        }
+        loadingAfter = true;
+        int expected = generation;
+        String afterId = rows.isEmpty() ? "" : rows.get(rows.size() - 1).getId();
+        dataAccess.findPageAfter(afterId, PAGE_SIZE, page -> {
+            if (expected != generation) {
+                return;
+            }
+            loadingAfter = false;
+            noMoreAfter = page.size() < PAGE_SIZE;
+            if (wantAfter) {
+                wantAfter = false;
+                appendPage(page);
+                fetchAfter();
+            } else if (!page.isEmpty()) {
+                prefetchedAfter = page;
+            }
+        }, this::showError);
+    }
+
+    private void requestBefore() {
+        if (loadingBefore || noMoreBefore || rows.isEmpty() || reloadIfConnected()) {
+            return;
+        }
+        loadingBefore = true;
+        int expected = generation;
+        String beforeId = rows.get(0).getId();
+        dataAccess.findPageBefore(beforeId, PAGE_SIZE, page -> {
+            if (expected != generation) {
+                return;
+            }
+            loadingBefore = false;
+            noMoreBefore = page.size() < PAGE_SIZE;
+            prependPage(page);
+        }, this::showError);
+    }
+
+    private void appendPage(List<Staff> page) {
+        int first = firstVisibleIndex();
+        rows.addAll(page);
+        int excess = rows.size() - MAX_ROWS;
+        if (excess > 0) {
+            rows.remove(0, excess);
+            noMoreBefore = false;
+            generation++; // An in-flight page before the old top no longer adjoins the window
+            loadingBefore = false;
+            table.scrollTo(Math.max(0, first - excess));
+        }
+        updateStatus();
+    }
+
+    private void prependPage(List<Staff> page) {
+        int first = firstVisibleIndex();
+        rows.addAll(0, page);
+        int excess = rows.size() - MAX_ROWS;
+        if (excess > 0) {
+            rows.remove(rows.size() - excess, rows.size());
+            noMoreAfter = false;
+            prefetchedAfter = null; // Prefetched page no longer adjoins the window
+            generation++;
+            loadingAfter = false;
+            wantAfter = false;
+        }
+        table.scrollTo(first + page.size());
+        updateStatus();
+    }
+
+    private int firstVisibleIndex() {
+        VirtualFlow<?> flow = (VirtualFlow<?>) table.lookup(".virtual-flow");
+        IndexedCell<?> cell = flow == null ? null : flow.getFirstVisibleCell();
+        return cell == null ? 0 : cell.getIndex();
+    }
+
+    private void updateStatus() {
+        if (rows.isEmpty()) {
+            lblStatus.setText("No staff records");
+        } else {
+            lblStatus.setText("Showing IDs " + rows.get(0).getId() + " to "
+                    + rows.get(rows.size() - 1).getId() + " (" + rows.size() + " rows in memory)");
+        }
+    }
+
+    private void showError(Exception ex) {
+        loadingAfter = false;
+        loadingBefore = false;
+        lblStatus.setText("Error loading records: " + ex.getMessage());
+    }
+}
@@ -0,0 +1,186 @@
+package fx;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Consumer;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.SplitPane;
+import javafx.scene.control.TableRow;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+
+/**
+ * Looks up a pasted list of IDs in a few chunked IN-list queries instead of one
+ * SELECT per ID. Cached records show at once and the rest fill in chunk by chunk.
+ * Compare runs the same IDs both ways against the database, without the cache,
+ * and reports latency and throughput of each.
+ */
+class StaffBulkLookup extends BorderPane {
+
+    private final StaffDataAccess dataAccess;
+    private final TextArea taIds = new TextArea();
+    private final ObservableList<Staff> rows = FXCollections.observableArrayList();
+    private final TableView<Staff> table = new TableView<>(rows);
+    private final TextArea taMissing = new TextArea();
+    private final Label lblStatus = new Label("Paste IDs separated by spaces, commas or new lines");
+    private final Button btLookup = new Button("Look Up");
+    private final Button btCompare = new Button("Compare with per-ID loop");
+
+    // Incremented per lookup so chunks of an earlier lookup are dropped
+    private int generation;
+
+    StaffBulkLookup(StaffDataAccess dataAccess, Consumer<Staff> onOpen) {
+        this.dataAccess = dataAccess;
+
+        taIds.setPrefColumnCount(12);
+        taMissing.setEditable(false);
+        taMissing.setPrefRowCount(4);
+
+        StaffColumns.addTo(table);
+        table.setRowFactory(tv -> {
+            TableRow<Staff> row = new TableRow<>();
+            row.setOnMouseClicked(e -> {
+                if (e.getClickCount() == 2 && !row.isEmpty()) {
+                    onOpen.accept(row.getItem());
+                }
+            });
+            return row;
+        });
+
+        btLookup.setOnAction(e -> lookup());
+        btCompare.setOnAction(e -> compare());
+
+        VBox results = new VBox(5, table, new Label("Not found:"), taMissing);
+        SplitPane split = new SplitPane(new VBox(5, new Label("IDs:"), taIds), results);
+        split.setDividerPositions(0.2);
+        HBox bottom = new HBox(10, btLookup, btCompare, lblStatus);
+        bottom.setPadding(new Insets(5));
+        setCenter(split);
+        setBottom(bottom);
+    }
+
+    /**
+     * The distinct IDs in the text area, in the order they were pasted
+     */
+    private List<String> readIds() {
+        List<String> ids = new ArrayList<>();
+        for (String id : taIds.getText().split("[\\s,;]+")) {
+            if (!id.isEmpty()) {
+                ids.add(id);
+            }
+        }
+        return new ArrayList<>(new LinkedHashSet<>(ids));
+    }
+
+    private void lookup() {
+        List<String> ids = readIds();
+        if (ids.isEmpty()) {
+            lblStatus.setText("No IDs to look up");
+            return;
+        }
+        int expected = ++generation;
+        rows.clear();
+        taMissing.clear();
+        lblStatus.setText("Looking up " + ids.size() + " IDs...");
+        dataAccess.viewAll(ids, records -> {
+            if (expected == generation) {
+                rows.addAll(records);
+                lblStatus.setText(rows.size() + " of " + ids.size() + " found so far...");
+            }
+        }, lookup -> {
+            if (expected == generation) {
+                taMissing.setText(String.join(System.lineSeparator(), lookup.getMissing()));
+                lblStatus.setText(lookup.toString());
+            }
+        }, ex -> {
+            if (expected == generation) {
+                lblStatus.setText("Lookup failed: " + ex.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Runs the IDs through the per-ID loop and the chunked lookup on one connection.
+     * Each runs once untimed first, so both timed runs find the rows in the server's
+     * cache and neither pays for warming it.
+     */
+    private void compare() {
+        List<String> ids = readIds();
+        if (ids.isEmpty()) {
+            lblStatus.setText("No IDs to compare");
+            return;
+        }
+        btCompare.setDisable(true);
+        lblStatus.setText("Comparing " + ids.size() + " IDs...");
+        dataAccess.submit(c -> {
+            runLoop(c, ids);
+            runChunked(c, ids);
+            Timing loop = runLoop(c, ids);
+            Timing chunked = runChunked(c, ids);
+            return Arrays.asList(
+                    describe("Per-ID loop", ids.size(), loop),
+                    describe("Chunked IN", ids.size(), chunked),
+                    String.format("Speedup %.1fx", chunked.totalNanos == 0 ? 0
+                            : (double) loop.totalNanos / chunked.totalNanos));
+        }, lines -> {
+            btCompare.setDisable(false);
+            lblStatus.setText(String.join(" | ", lines));
+        }, ex -> {
+            btCompare.setDisable(false);
+            lblStatus.setText("Comparison failed: " + ex.getMessage());
+        });
+    }
+
+    /**
+     * Records found, and the time to the first one and to the end of one lookup
+     */
+    private static final class Timing {
+        int found;
+        long firstNanos = -1;
+        long totalNanos;
+    }
+
+    private static Timing runLoop(Connection connection, List<String> ids) throws SQLException {
+        Timing timing = new Timing();
+        long start = System.nanoTime();
+        for (String id : ids) {
+            if (StaffRepository.find(connection, id) != null) {
+                timing.found++;
+                if (timing.firstNanos < 0) {
+                    timing.firstNanos = System.nanoTime() - start;
+                }
+            }
+        }
+        timing.totalNanos = System.nanoTime() - start;
+        return timing;
+    }
+
+    private static Timing runChunked(Connection connection, List<String> ids) throws SQLException {
+        Timing timing = new Timing();
+        long start = System.nanoTime();
+        timing.found = StaffRepository.findByIds(connection, ids, StaffRepository.DEFAULT_LOOKUP_CHUNK, records -> {
+            if (timing.firstNanos < 0 && !records.isEmpty()) {
+                timing.firstNanos = System.nanoTime() - start;
+            }
+        });
+        timing.totalNanos = System.nanoTime() - start;
+        return timing;
+    }
+
+    private static String describe(String name, int ids, Timing timing) {
+        return String.format("%s: %d/%d found, first %.1f ms, total %.1f ms, %.0f IDs/s", name, timing.found,
+                ids, Math.max(0, timing.firstNanos) / 1e6, timing.totalNanos / 1e6,
+                timing.totalNanos == 0 ? 0 : ids * 1e9 / timing.totalNanos);
+    }
+}
@@ -0,0 +1,279 @@
+package fx;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded in-memory cache of Staff records keyed by ID.
+ * Entries are evicted least-recently-used once the cache is full and expire after a TTL.
+ * City and state repeat across many records, so they are stored as small integer
+ * codes into shared dictionaries instead of one String per record. A code is freed
+ * when the last record using it leaves the cache; when a dictionary is full, the
+ * least recently used records are evicted until one of their codes is free.
+ *
+ * A database read can finish after a write of the same ID that started later, so
+ * read-through results go through {@link #beginRead} and {@link #endRead}, which
+ * drop a result if the ID was written or invalidated while it was being read.
+ */
+public class StaffCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+    public static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000;
+
+    // Distinct cities or states held at once
+    private static final int MAX_DICTIONARY_SIZE = 4096;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    private final LinkedHashMap<String, CachedStaff> entries;
+    private final Dictionary cities = new Dictionary();
+    private final Dictionary states = new Dictionary();
+
+    // IDs being read from the database; stamps come from clock
+    private final Map<String, Read> reads = new HashMap<>();
+    private long clock;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public StaffCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS);
+    }
+
+    public StaffCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<String, CachedStaff>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStaff> eldest) {
+                if (size() <= StaffCache.this.maxEntries) {
+                    return false;
+                }
+                release(eldest.getValue());
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached record, or null on a miss or when the entry has expired
+     */
+    public synchronized Staff get(String id) {
+        CachedStaff entry = entries.get(id);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            release(entries.remove(id));
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return new Staff(id, entry.lastName, entry.firstName, entry.mi, entry.address,
+                cities.decode(entry.city), states.decode(entry.state), entry.telephone, entry.email);
+    }
+
+    /**
+     * Adds or replaces a record with one just written or otherwise known to be current
+     */
+    public synchronized void put(Staff staff) {
+        written(staff.getId());
+        store(staff);
+    }
+
+    /**
+     * Starts reading the IDs from the database; returns the stamp to pass to {@link #endRead}
+     */
+    public synchronized long beginRead(Collection<String> ids) {
+        long stamp = ++clock;
+        for (String id : ids) {
+            reads.computeIfAbsent(id, key -> new Read()).readers++;
+        }
+        return stamp;
+    }
+
+    /**
+     * Ends a read begun with the stamp and caches what it found, unless the ID was
+     * written since the read began. Call it for every ID read, with null if none was found.
+     */
+    public synchronized void endRead(String id, long stamp, Staff staff) {
+        Read read = reads.get(id);
+        if (read == null) {
+            return;
+        }
+        if (--read.readers == 0) {
+            reads.remove(id);
+        }
+        if (staff != null && read.lastWrite < stamp) {
+            store(staff);
+        }
+    }
+
+    private void written(String id) {
+        Read read = reads.get(id);
+        if (read != null) {
+            read.lastWrite = ++clock;
+        }
+    }
+
+    private void store(Staff staff) {
+        // Not low-cardinality after all; make room by evicting rather than grow without bound
+        Iterator<CachedStaff> eldest = entries.values().iterator();
+        while ((cities.isFull(staff.getCity()) || states.isFull(staff.getState())) && eldest.hasNext()) {
+            release(eldest.next());
+            eldest.remove();
+            evictions++;
+        }
+        CachedStaff entry = new CachedStaff();
+        entry.lastName = staff.getLastName();
+        entry.firstName = staff.getFirstName();
+        entry.mi = staff.getMi();
+        entry.address = staff.getAddress();
+        entry.city = cities.encode(staff.getCity());
+        entry.state = states.encode(staff.getState());
+        entry.telephone = staff.getTelephone();
+        entry.email = staff.getEmail();
+        entry.expiresAt = System.currentTimeMillis() + ttlMillis;
+        // The new codes are taken first, so a city or state the old record shares stays encoded
+        release(entries.put(staff.getId(), entry));
+    }
+
+    public synchronized void invalidate(String id) {
+        written(id);
+        release(entries.remove(id));
+    }
+
+    private void release(CachedStaff entry) {
+        if (entry != null) {
+            cities.release(entry.city);
+            states.release(entry.state);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        cities.clear();
+        states.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * One-line summary of cache size and hit rate
+     */
+    public synchronized String getStatistics() {
+        return String.format("staffCache: size=%d/%d hits=%d misses=%d hitRate=%.1f%% "
+                + "evictions=%d expirations=%d cities=%d states=%d",
+                entries.size(), maxEntries, hits, misses, getHitRate() * 100,
+                evictions, expirations, cities.size(), states.size());
+    }
+
+    /**
+     * Database reads in flight for one ID, and the stamp of the last write to it meanwhile
+     */
+    private static class Read {
+        int readers;
+        long lastWrite;
+    }
+
+    /**
+     * A cached record without its ID (the map key) and with city and state encoded
+     */
+    private static class CachedStaff {
+        String lastName;
+        String firstName;
+        String mi;
+        String address;
+        short city;
+        short state;
+        String telephone;
+        String email;
+        long expiresAt;
+    }
+
+    /**
+     * Maps repeated strings to small codes and back; code 0 is null. Each code counts
+     * the records using it and is reused once none do.
+     */
+    private static class Dictionary {
+
+        private final Map<String, Short> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private final int[] references = new int[MAX_DICTIONARY_SIZE + 1];
+        private final ArrayDeque<Short> free = new ArrayDeque<>();
+
+        Dictionary() {
+            values.add(null);
+        }
+
+        short encode(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Short code = codes.get(value);
+            if (code == null) {
+                if (free.isEmpty()) {
+                    code = (short) values.size();
+                    values.add(value);
+                } else {
+                    code = free.pop();
+                    values.set(code, value);
+                }
+                codes.put(value, code);
+            }
+            references[code]++;
+            return code;
+        }
+
+        /**
+         * Whether encoding the value needs a new code and none is left
+         */
+        boolean isFull(String value) {
+            return value != null && codes.size() >= MAX_DICTIONARY_SIZE && !codes.containsKey(value);
+        }
+
+        void release(short code) {
+            if (code != 0 && --references[code] == 0) {
+                codes.remove(values.get(code));
+                values.set(code, null);
+                free.push(code);
+            }
+        }
+
+        String decode(short code) {
+            return values.get(code);
+        }
+
+        int size() {
+            return codes.size();
+        }
+
+        void clear() {
+            codes.clear();
+            values.clear();
+            values.add(null);
+            Arrays.fill(references, 0);
+            free.clear();
+        }
+    }
+}
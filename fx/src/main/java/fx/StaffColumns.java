@@ -0,0 +1,37 @@
+package fx;
+
+import java.util.function.Function;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+
+/**
+ * The Staff table columns shared by the browse and bulk lookup views
+ */
+final class StaffColumns {
+
+    private StaffColumns() {
+    }
+
+    /**
+     * Adds one column per Staff field, in table order
+     */
+    static void addTo(TableView<Staff> table) {
+        table.getColumns().add(column("ID", Staff::getId, 90));
+        table.getColumns().add(column("Last Name", Staff::getLastName, 110));
+        table.getColumns().add(column("First Name", Staff::getFirstName, 110));
+        table.getColumns().add(column("MI", Staff::getMi, 35));
+        table.getColumns().add(column("Address", Staff::getAddress, 140));
+        table.getColumns().add(column("City", Staff::getCity, 110));
+        table.getColumns().add(column("State", Staff::getState, 50));
+        table.getColumns().add(column("Telephone", Staff::getTelephone, 100));
+        table.getColumns().add(column("Email", Staff::getEmail, 200));
+    }
+
+    private static TableColumn<Staff, String> column(String title, Function<Staff, String> getter, double width) {
+        TableColumn<Staff, String> column = new TableColumn<>(title);
+        column.setCellValueFactory(c -> new ReadOnlyStringWrapper(getter.apply(c.getValue())));
+        column.setPrefWidth(width);
+        return column;
+    }
+}
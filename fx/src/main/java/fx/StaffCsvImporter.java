@@ -0,0 +1,396 @@
+package fx;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streams a CSV file of Staff records into the database.
+ * The file is read record by record and rows are sent as JDBC batches, committed every
+ * commitInterval rows, so memory use does not depend on the file size. Each row is
+ * checked with {@link Staff#validate()}, the same rules the form uses. A batch that
+ * fails (for example on a duplicate ID) is rolled back to its savepoint and replayed
+ * row by row so only the offending rows are rejected.
+ *
+ * Columns are id, lastName, firstName, mi, address, city, state, telephone, email.
+ * Further columns, such as the updatedAt column of an exported file, are ignored.
+ * A first record naming those columns, as exported and generated files have, is skipped.
+ * Fields may be quoted with double quotes, and a quoted field may span lines, so files
+ * written by {@link TableExporter} read back as they were exported.
+ */
+public class StaffCsvImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_COMMIT_INTERVAL = 10_000;
+
+    private static final String[] COLUMNS = {
+        "id", "lastName", "firstName", "mi", "address", "city", "state", "telephone", "email"
+    };
+    private static final int COLUMN_COUNT = COLUMNS.length;
+
+    private static final int READ_BUFFER_CHARS = 8192;
+
+    // Only the first rejections are kept so a bad file cannot exhaust memory
+    private static final int MAX_REJECTION_MESSAGES = 100;
+
+    private final int batchSize;
+    private final int commitInterval;
+    private volatile boolean cancelled;
+
+    public StaffCsvImporter(int batchSize, int commitInterval) {
+        if (batchSize < 1 || commitInterval < 1) {
+            throw new IllegalArgumentException("Batch size and commit interval must be positive");
+        }
+        this.batchSize = batchSize;
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * Progress and outcome of an import
+     */
+    public static class Stats {
+        private final long fileBytes;
+        private final long startNanos = System.nanoTime();
+        private long bytesRead;
+        private long rowsRead;
+        private long rowsInserted;
+        private long rowsRejected;
+        private long elapsedNanos;
+        private boolean cancelled;
+        private final List<String> rejections = new ArrayList<>();
+
+        Stats(long fileBytes) {
+            this.fileBytes = fileBytes;
+        }
+
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public long getRowsInserted() {
+            return rowsInserted;
+        }
+
+        public long getRowsRejected() {
+            return rowsRejected;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowsRead / getElapsedSeconds();
+        }
+
+        /**
+         * Fraction of the file read so far, between 0 and 1. Bytes are counted as the
+         * reader takes them from the file, so this runs ahead of the parsed rows by at
+         * most the reader's buffer.
+         */
+        public double getProgress() {
+            return fileBytes == 0 ? 1 : Math.min(1.0, (double) bytesRead / fileBytes);
+        }
+
+        /**
+         * Line number and reason for the first rejected rows
+         */
+        public List<String> getRejections() {
+            return rejections;
+        }
+
+        private void reject(long line, String reason) {
+            rowsRejected++;
+            if (rejections.size() < MAX_REJECTION_MESSAGES) {
+                rejections.add("Line " + line + ": " + reason);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows read, %d inserted, %d rejected in %.1f s (%.0f rows/s)%s",
+                    rowsRead, rowsInserted, rowsRejected, getElapsedSeconds(), getRowsPerSecond(),
+                    cancelled ? " - cancelled" : "");
+        }
+    }
+
+    /**
+     * Stops the import at the next record; the rows read so far are still sent and committed
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Imports the file, reporting progress after every commit.
+     * The connection's auto-commit mode is restored afterwards.
+     */
+    public Stats importFile(Connection connection, Path file, Consumer<Stats> progress)
+            throws IOException, SQLException {
+        Stats stats = new Stats(Files.size(file));
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+
+        CountingInputStream in = new CountingInputStream(Files.newInputStream(file));
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+                PreparedStatement statement = connection.prepareStatement(StaffRepository.INSERT_SQL)) {
+            CsvReader records = new CsvReader(reader);
+            // Rows of the current batch with their line numbers, for the row-by-row replay
+            List<Staff> batch = new ArrayList<>(batchSize);
+            List<Long> batchLines = new ArrayList<>(batchSize);
+            long uncommitted = 0;
+            boolean first = true;
+            List<String> fields;
+
+            while (!cancelled && (fields = records.next()) != null) {
+                long lineNumber = records.getRecordLine();
+                stats.bytesRead = in.count;
+                if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                    continue;
+                }
+                if (first) {
+                    first = false;
+                    if (isHeader(fields)) {
+                        continue;
+                    }
+                }
+
+                stats.rowsRead++;
+                if (fields.size() < COLUMN_COUNT) {
+                    stats.reject(lineNumber, "expected " + COLUMN_COUNT + " columns but found " + fields.size());
+                    continue;
+                }
+                Staff staff = new Staff(fields.get(0), fields.get(1), fields.get(2), fields.get(3),
+                        fields.get(4), fields.get(5), fields.get(6), fields.get(7), fields.get(8));
+                String error = staff.validate();
+                if (error != null) {
+                    stats.reject(lineNumber, error);
+                    continue;
+                }
+
+                batch.add(staff);
+                batchLines.add(lineNumber);
+                if (batch.size() == batchSize) {
+                    uncommitted += executeBatch(connection, statement, batch, batchLines, stats);
+                    if (uncommitted >= commitInterval) {
+                        commit(connection, stats, progress);
+                        uncommitted = 0;
+                    }
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                executeBatch(connection, statement, batch, batchLines, stats);
+            }
+            stats.cancelled = cancelled;
+            stats.bytesRead = in.count;
+            commit(connection, stats, progress);
+        } catch (IOException | SQLException | RuntimeException ex) {
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return stats;
+    }
+
+    /**
+     * Sends one batch. On failure the batch is undone and replayed row by row
+     * so that valid rows are kept and failing rows are rejected.
+     */
+    private int executeBatch(Connection connection, PreparedStatement statement, List<Staff> batch,
+            List<Long> batchLines, Stats stats) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        int inserted = 0;
+        try {
+            for (Staff staff : batch) {
+                StaffRepository.bindInsert(statement, staff);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            inserted = batch.size();
+        } catch (BatchUpdateException ex) {
+            statement.clearBatch();
+            connection.rollback(savepoint);
+            for (int i = 0; i < batch.size(); i++) {
+                Savepoint rowSavepoint = connection.setSavepoint();
+                try {
+                    StaffRepository.bindInsert(statement, batch.get(i));
+                    statement.executeUpdate();
+                    inserted++;
+                } catch (SQLException rowEx) {
+                    connection.rollback(rowSavepoint);
+                    stats.reject(batchLines.get(i), rowEx.getErrorCode() == 1062
+                            ? "duplicate ID '" + batch.get(i).getId() + "'" : rowEx.getMessage());
+                }
+            }
+        }
+        stats.rowsInserted += inserted;
+        batch.clear();
+        batchLines.clear();
+        return inserted;
+    }
+
+    private void commit(Connection connection, Stats stats, Consumer<Stats> progress) throws SQLException {
+        connection.commit();
+        stats.elapsedNanos = System.nanoTime() - stats.startNanos;
+        if (progress != null) {
+            progress.accept(stats);
+        }
+    }
+
+    /**
+     * Counts the bytes read through it, line endings and multi-byte characters included
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * Whether the record names the Staff columns, in order; the case is not compared
+     */
+    static boolean isHeader(List<String> fields) {
+        if (fields.size() < COLUMN_COUNT) {
+            return false;
+        }
+        for (int i = 0; i < COLUMN_COUNT; i++) {
+            if (!COLUMNS[i].equalsIgnoreCase(fields.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits CSV text into records of trimmed fields. Double-quoted fields may contain
+     * commas and line breaks, and "" inside quotes stands for one quote character.
+     * Outside quotes a record ends at \n, \r\n or \r.
+     */
+    static final class CsvReader {
+
+        private final Reader in;
+        private final char[] buffer = new char[READ_BUFFER_CHARS];
+        private int position;
+        private int limit;
+
+        // Line of the next character, and the first line of the last record returned
+        private long line = 1;
+        private long recordLine;
+
+        CsvReader(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * Line number, from 1, on which the last record returned started
+         */
+        long getRecordLine() {
+            return recordLine;
+        }
+
+        /**
+         * The next record, or null at the end of the input; a blank line is one empty field
+         */
+        List<String> next() throws IOException {
+            recordLine = line;
+            int c = read();
+            if (c < 0) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>(COLUMN_COUNT);
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (; c >= 0; c = read()) {
+                if (quoted) {
+                    if (c == '"' && peek() == '"') {
+                        field.append('"');
+                        position++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        if (c == '\n' || (c == '\r' && peek() != '\n')) {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString().trim());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r' && peek() == '\n') {
+                        position++;
+                    }
+                    line++;
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+            }
+            fields.add(field.toString().trim());
+            return fields;
+        }
+
+        private int read() throws IOException {
+            return position < limit || fill() ? buffer[position++] : -1;
+        }
+
+        private int peek() throws IOException {
+            return position < limit || fill() ? buffer[position] : -1;
+        }
+
+        private boolean fill() throws IOException {
+            int n = in.read(buffer, 0, buffer.length);
+            position = 0;
+            limit = Math.max(0, n);
+            return n > 0;
+        }
+    }
+}
@@ -0,0 +1,538 @@
+package fx;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+
+/**
+ * Asynchronous data access for the Staff table.
+ * JDBC work runs on a background executor (virtual threads on Java 21+) and
+ * results are handed back on the JavaFX Application Thread with Platform.runLater.
+ * Lookups read through a {@link StaffCache}; successful inserts and updates write through it
+ * and are passed to any registered write listeners. With a {@link StaffWriteBehind} attached,
+ * {@link #saveLater(Staff)} queues a record locally instead of waiting for the database.
+ * With a {@link StaffReplica} attached, lookups the cache misses are served from the
+ * replica when it has the record.
+ */
+public class StaffDataAccess {
+
+    /**
+     * A unit of database work that runs on a background thread
+     */
+    @FunctionalInterface
+    public interface SqlTask<T> {
+        T execute(Connection connection) throws SQLException;
+    }
+
+    // Upper bound on platform worker threads when virtual threads are unavailable
+    private static final int MAX_WORKERS = 8;
+
+    // Completed once the database is reachable; tasks submitted earlier wait for it
+    private final CompletableFuture<ConnectionPool> pool;
+    private final StaffCache cache;
+    private final ExecutorService executor = createExecutor();
+
+    // Notified on the background thread after every successful insert or update
+    private final List<Consumer<Staff>> writeListeners = new CopyOnWriteArrayList<>();
+
+    // Latest lookup per ID; an older lookup for the same ID is cancelled
+    private final ConcurrentHashMap<String, Future<?>> pendingLookups = new ConcurrentHashMap<>();
+
+    private volatile StaffWriteBehind writeBehind;
+    private volatile StaffReplica replica;
+
+    public StaffDataAccess(ConnectionPool pool, StaffCache cache) {
+        this(CompletableFuture.completedFuture(pool), cache);
+    }
+
+    /**
+     * Data access over a pool that is still being created, so the UI can start before the
+     * database connects. Tasks block their background thread until the pool is ready,
+     * and fail if it cannot be created.
+     */
+    public StaffDataAccess(CompletableFuture<ConnectionPool> pool, StaffCache cache) {
+        this.pool = pool;
+        this.cache = cache;
+    }
+
+    public StaffCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Registers a listener for records written by this data access layer,
+     * such as a local index that must stay current
+     */
+    public void addWriteListener(Consumer<Staff> listener) {
+        writeListeners.add(listener);
+    }
+
+    /**
+     * Attaches the write-behind queue used by {@link #saveLater(Staff)}; lookups then
+     * see queued records before they reach the database
+     */
+    public void setWriteBehind(StaffWriteBehind writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    public StaffWriteBehind getWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * Attaches a local replica that lookups read from before going to the database;
+     * records written here are applied to it at once. Records saved with
+     * {@link #saveLater(Staff)} reach it with the first sync after their flush, so the
+     * replica holds only rows that reached the table.
+     */
+    public void setReplica(StaffReplica replica) {
+        this.replica = replica;
+    }
+
+    /**
+     * The queued, cached or replicated copy of a record, or null if only the database has it
+     */
+    private Staff findLocal(String id) {
+        StaffWriteBehind queue = writeBehind;
+        Staff staff = queue == null ? null : queue.getPending(id);
+        if (staff == null) {
+            staff = cache.get(id);
+        }
+        StaffReplica local = replica;
+        if (staff == null && local != null) {
+            staff = local.get(id);
+        }
+        return staff;
+    }
+
+    /**
+     * Looks up a record by ID. The result is null when the ID does not exist.
+     * A lookup that is superseded by a newer one for the same ID is cancelled
+     * and its callbacks are never invoked.
+     */
+    public Future<?> view(String id, Consumer<Staff> onSuccess, Consumer<SQLException> onFailure) {
+        Staff cached = findLocal(id);
+        if (cached != null) {
+            Future<?> previous = pendingLookups.remove(id);
+            if (previous != null) {
+                previous.cancel(true);
+            }
+            Platform.runLater(() -> onSuccess.accept(cached));
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        UiTask<Staff> task = new UiTask<>(c -> {
+            long stamp = cache.beginRead(Collections.singleton(id));
+            Staff staff = null;
+            try {
+                staff = StaffRepository.find(c, id);
+            } finally {
+                cache.endRead(id, stamp, staff);
+            }
+            return staff;
+        }, onSuccess, onFailure) {
+            @Override
+            protected boolean isCurrent() {
+                return pendingLookups.remove(id, this);
+            }
+        };
+        Future<?> previous = pendingLookups.put(id, task);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * What a bulk lookup found and how long it took
+     */
+    public static final class BulkLookup {
+        private final int requested;
+        private final int fromCache;
+        private final int fromDatabase;
+        private final List<String> missing;
+        private final long firstResultNanos;
+        private final long totalNanos;
+
+        BulkLookup(int requested, int fromCache, int fromDatabase, List<String> missing,
+                long firstResultNanos, long totalNanos) {
+            this.requested = requested;
+            this.fromCache = fromCache;
+            this.fromDatabase = fromDatabase;
+            this.missing = missing;
+            this.firstResultNanos = firstResultNanos;
+            this.totalNanos = totalNanos;
+        }
+
+        /**
+         * Distinct IDs asked for
+         */
+        public int getRequested() {
+            return requested;
+        }
+
+        public int getFromCache() {
+            return fromCache;
+        }
+
+        public int getFromDatabase() {
+            return fromDatabase;
+        }
+
+        /**
+         * IDs with no record, in the order they were asked for
+         */
+        public List<String> getMissing() {
+            return missing;
+        }
+
+        public double getFirstResultMillis() {
+            return firstResultNanos / 1e6;
+        }
+
+        public double getTotalMillis() {
+            return totalNanos / 1e6;
+        }
+
+        public double getIdsPerSecond() {
+            return totalNanos == 0 ? 0 : requested * 1e9 / totalNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d IDs: %d cached, %d from database, %d missing; first result %.1f ms,"
+                    + " total %.1f ms (%.0f IDs/s)", requested, fromCache, fromDatabase, missing.size(),
+                    getFirstResultMillis(), getTotalMillis(), getIdsPerSecond());
+        }
+    }
+
+    /**
+     * Looks up many IDs at once. Records already queued, cached or replicated are
+     * delivered first, then the rest arrive chunk by chunk from chunked IN-list queries;
+     * onRecords is called on the FX thread for each batch and onDone once at the end.
+     */
+    public Future<?> viewAll(Collection<String> ids, Consumer<List<Staff>> onRecords, Consumer<BulkLookup> onDone,
+            Consumer<SQLException> onFailure) {
+        long start = System.nanoTime();
+        List<String> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<Staff> local = new ArrayList<>();
+        List<String> remote = new ArrayList<>();
+        for (String id : unique) {
+            Staff staff = findLocal(id);
+            if (staff != null) {
+                local.add(staff);
+            } else {
+                remote.add(id);
+            }
+        }
+        long localNanos = System.nanoTime() - start;
+        if (!local.isEmpty()) {
+            Platform.runLater(() -> onRecords.accept(local));
+        }
+
+        return submit(c -> {
+            Set<String> found = new HashSet<>();
+            long[] firstNanos = { local.isEmpty() ? -1 : localNanos };
+            long stamp = cache.beginRead(remote);
+            try {
+                StaffRepository.findByIds(c, remote, StaffRepository.DEFAULT_LOOKUP_CHUNK, records -> {
+                    if (firstNanos[0] < 0 && !records.isEmpty()) {
+                        firstNanos[0] = System.nanoTime() - start;
+                    }
+                    for (Staff staff : records) {
+                        cache.endRead(staff.getId(), stamp, staff);
+                        found.add(staff.getId());
+                    }
+                    Platform.runLater(() -> onRecords.accept(records));
+                });
+            } finally {
+                for (String id : remote) {
+                    if (!found.contains(id)) {
+                        cache.endRead(id, stamp, null);
+                    }
+                }
+            }
+            List<String> missing = new ArrayList<>();
+            for (String id : remote) {
+                if (!found.contains(id)) {
+                    missing.add(id);
+                }
+            }
+            return new BulkLookup(unique.size(), local.size(), found.size(), missing,
+                    Math.max(0, firstNanos[0]), System.nanoTime() - start);
+        }, onDone, onFailure);
+    }
+
+    private boolean isConnected() {
+        return pool.isDone() && !pool.isCompletedExceptionally();
+    }
+
+    /**
+     * Whether pages are served from the replica's snapshot, whose ID order is not the
+     * database's, so a position from such a page must not be used once this turns false
+     */
+    boolean isPagingLocally() {
+        StaffReplica local = replica;
+        return !isConnected() && local != null && local.hasSnapshot();
+    }
+
+    /**
+     * Reads a page of records with IDs after the given one, in ID order. While the
+     * database is not connected it is served from the replica's snapshot, if it has one.
+     */
+    public Future<?> findPageAfter(String afterId, int limit, Consumer<List<Staff>> onSuccess,
+            Consumer<SQLException> onFailure) {
+        StaffReplica local = replica;
+        List<Staff> page = isConnected() || local == null ? null : local.findPageAfter(afterId, limit);
+        if (page != null) {
+            Platform.runLater(() -> onSuccess.accept(page));
+            return CompletableFuture.completedFuture(page);
+        }
+        return submit(c -> StaffRepository.findPageAfter(c, afterId, limit), onSuccess, onFailure);
+    }
+
+    /**
+     * Reads a page of records with IDs before the given one, in ID order, as for {@link #findPageAfter}
+     */
+    public Future<?> findPageBefore(String beforeId, int limit, Consumer<List<Staff>> onSuccess,
+            Consumer<SQLException> onFailure) {
+        StaffReplica local = replica;
+        List<Staff> page = isConnected() || local == null ? null : local.findPageBefore(beforeId, limit);
+        if (page != null) {
+            Platform.runLater(() -> onSuccess.accept(page));
+            return CompletableFuture.completedFuture(page);
+        }
+        return submit(c -> StaffRepository.findPageBefore(c, beforeId, limit), onSuccess, onFailure);
+    }
+
+    /**
+     * Inserts a record and reports the number of affected rows
+     */
+    public Future<?> insert(Staff staff, Consumer<Integer> onSuccess, Consumer<SQLException> onFailure) {
+        return submit(c -> {
+            int result = StaffRepository.insert(c, staff);
+            if (result > 0) {
+                written(staff);
+            }
+            return result;
+        }, onSuccess, onFailure);
+    }
+
+    /**
+     * Updates a record and reports the number of affected rows
+     */
+    public Future<?> update(Staff staff, Consumer<Integer> onSuccess, Consumer<SQLException> onFailure) {
+        return submit(c -> {
+            int result = StaffRepository.update(c, staff);
+            if (result > 0) {
+                written(staff);
+            } else {
+                cache.invalidate(staff.getId());
+            }
+            return result;
+        }, onSuccess, onFailure);
+    }
+
+    /**
+     * Inserts the record or overwrites the one with the same ID in a single round trip
+     */
+    public Future<?> upsert(Staff staff, Consumer<StaffRepository.UpsertOutcome> onSuccess,
+            Consumer<SQLException> onFailure) {
+        return submit(c -> {
+            StaffRepository.UpsertOutcome outcome = StaffRepository.upsert(c, staff);
+            written(staff);
+            return outcome;
+        }, onSuccess, onFailure);
+    }
+
+    /**
+     * Writes only the columns changed since the record was loaded, checking that
+     * nobody else changed them meanwhile. On a conflict the cache is refreshed with
+     * the current row, so the next view shows what is in the database.
+     */
+    public Future<?> updateChanged(Staff loaded, Staff edited, Consumer<StaffRepository.UpdateOutcome> onSuccess,
+            Consumer<SQLException> onFailure) {
+        return submit(c -> {
+            StaffRepository.UpdateOutcome outcome = StaffRepository.updateChanged(c, loaded, edited);
+            switch (outcome) {
+                case UPDATED:
+                    written(edited);
+                    break;
+                case CONFLICT:
+                    Staff current = StaffRepository.find(c, edited.getId());
+                    if (current != null) {
+                        cache.put(current);
+                    }
+                    break;
+                case NOT_FOUND:
+                    cache.invalidate(edited.getId());
+                    break;
+                default:
+                    break;
+            }
+            return outcome;
+        }, onSuccess, onFailure);
+    }
+
+    /**
+     * Journals the record in the attached write-behind queue and returns without
+     * touching the database. The record is inserted or overwritten by a later flush.
+     */
+    public void saveLater(Staff staff) throws IOException {
+        StaffWriteBehind queue = writeBehind;
+        if (queue == null) {
+            throw new IllegalStateException("No write-behind queue attached");
+        }
+        queue.save(staff);
+        // Lookups find it in the queue; the replica would count a row the table lacks
+        announce(staff);
+    }
+
+    /**
+     * Runs arbitrary database work in the background and reports back on the FX thread
+     */
+    public <T> Future<?> submit(SqlTask<T> work, Consumer<T> onSuccess, Consumer<SQLException> onFailure) {
+        UiTask<T> task = new UiTask<>(work, onSuccess, onFailure);
+        executor.execute(task);
+        return task;
+    }
+
+    private ConnectionPool awaitPool() throws SQLException, InterruptedException {
+        ConnectionPool connections;
+        try {
+            connections = pool.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            throw cause instanceof SQLException
+                    ? (SQLException) cause : new SQLException("Not connected to database", cause);
+        }
+        if (connections == null) {
+            throw new SQLException("Not connected to database");
+        }
+        return connections;
+    }
+
+    private void written(Staff staff) {
+        StaffReplica local = replica;
+        if (local != null) {
+            local.put(staff);
+        }
+        announce(staff);
+    }
+
+    /**
+     * Caches the record and tells the write listeners
+     */
+    private void announce(Staff staff) {
+        cache.put(staff);
+        for (Consumer<Staff> listener : writeListeners) {
+            listener.accept(staff);
+        }
+    }
+
+    /**
+     * Stops accepting work and interrupts running tasks
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A background task that delivers its outcome on the JavaFX Application Thread
+     */
+    private class UiTask<T> extends FutureTask<T> {
+
+        private final Consumer<T> onSuccess;
+        private final Consumer<SQLException> onFailure;
+
+        UiTask(SqlTask<T> work, Consumer<T> onSuccess, Consumer<SQLException> onFailure) {
+            super(() -> {
+                ConnectionPool connections = awaitPool();
+                // Each task borrows its own connection so tasks run in parallel
+                try (Connection connection = connections.getConnection()) {
+                    return work.execute(connection);
+                }
+            });
+            this.onSuccess = onSuccess;
+            this.onFailure = onFailure;
+        }
+
+        /**
+         * Whether the outcome should still be delivered
+         */
+        protected boolean isCurrent() {
+            return true;
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                T result = get();
+                Platform.runLater(() -> {
+                    if (isCurrent()) {
+                        onSuccess.accept(result);
+                    }
+                });
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                SQLException sqlException = cause instanceof SQLException
+                        ? (SQLException) cause : new SQLException(cause.getMessage(), cause);
+                Platform.runLater(() -> {
+                    if (isCurrent()) {
+                        onFailure.accept(sqlException);
+                    }
+                });
+            } catch (InterruptedException | CancellationException ex) {
+                // Superseded or shut down; nothing to report
+            }
+        }
+    }
+
+    /**
+     * Uses a virtual-thread-per-task executor when the runtime provides one,
+     * otherwise a bounded pool of daemon platform threads
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadPoolExecutor workers = new ThreadPoolExecutor(MAX_WORKERS, MAX_WORKERS,
+                    30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                        Thread thread = new Thread(r, "staff-db-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            workers.allowCoreThreadTimeOut(true);
+            return workers;
+        }
+    }
+}
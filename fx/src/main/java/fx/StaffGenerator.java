@@ -0,0 +1,104 @@
+package fx;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Generates realistic Staff records for load tests. IDs are sequential nine-digit
+ * numbers; names, streets and cities are drawn from fixed lists with a skew towards
+ * the first entries, so common names repeat the way they do in real data. The same
+ * seed and first ID always give the same records, and every value fits the Staff
+ * column sizes.
+ */
+public class StaffGenerator {
+
+    private static final String[] FIRST_NAMES = {
+        "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda", "William",
+        "Elizabeth", "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah",
+        "Charles", "Karen", "Daniel", "Nancy", "Matthew", "Lisa", "Anthony", "Margaret", "Mark",
+        "Sandra", "Steven", "Ashley", "Andrew", "Emily", "Joshua", "Michelle", "Kevin", "Amanda"
+    };
+
+    private static final String[] LAST_NAMES = {
+        "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez",
+        "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor",
+        "Moore", "Jackson", "Martin", "Lee", "Perez", "Thompson", "White", "Harris", "Sanchez",
+        "Clark", "Ramirez", "Lewis", "Robinson", "Walker", "Young", "Allen", "King", "Wright"
+    };
+
+    private static final String[] STREETS = {
+        "Main St", "Oak Ave", "Abercorn St", "Bull St", "Pine Rd", "Maple Dr", "Cedar Ln",
+        "Elm St", "Park Ave", "Lake Dr", "Hill Rd", "River St", "Church St", "Broad St"
+    };
+
+    // City, state and telephone area code
+    private static final String[][] CITIES = {
+        { "Savannah", "GA", "912" }, { "Atlanta", "GA", "404" }, { "Charleston", "SC", "843" },
+        { "Jacksonville", "FL", "904" }, { "Columbia", "SC", "803" }, { "Augusta", "GA", "706" },
+        { "Macon", "GA", "478" }, { "Tallahassee", "FL", "850" }, { "Charlotte", "NC", "704" },
+        { "Birmingham", "AL", "205" }, { "Nashville", "TN", "615" }, { "Orlando", "FL", "407" }
+    };
+
+    private static final String CSV_HEADER = "id,lastName,firstName,mi,address,city,state,telephone,email";
+
+    private final SplittableRandom random;
+    private long nextId;
+
+    public StaffGenerator(long seed, long firstId) {
+        this.random = new SplittableRandom(seed);
+        this.nextId = firstId;
+    }
+
+    /**
+     * The nine-digit ID of the n-th record
+     */
+    public static String id(long n) {
+        return String.format("%09d", n);
+    }
+
+    /**
+     * The record with the next ID
+     */
+    public Staff next() {
+        long n = nextId++;
+        String firstName = pick(FIRST_NAMES);
+        String lastName = pick(LAST_NAMES);
+        // About one in five people has no middle initial
+        String mi = random.nextInt(5) == 0 ? "" : String.valueOf((char) ('A' + random.nextInt(26)));
+        String address = (100 + random.nextInt(9900)) + " " + pick(STREETS);
+        String[] city = pick(CITIES);
+        String telephone = city[2] + String.format("%07d", random.nextInt(10_000_000));
+        String email = (firstName.charAt(0) + lastName + n).toLowerCase(Locale.ROOT) + "@example.com";
+        return new Staff(id(n), lastName, firstName, mi, address, city[0], city[1], telephone, email);
+    }
+
+    /**
+     * Writes count records as CSV in the column order read by {@link StaffCsvImporter}
+     */
+    public void writeCsv(Path file, long count) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(CSV_HEADER);
+            out.newLine();
+            for (long i = 0; i < count; i++) {
+                Staff staff = next();
+                out.write(String.join(",", staff.getId(), staff.getLastName(), staff.getFirstName(),
+                        staff.getMi(), staff.getAddress(), staff.getCity(), staff.getState(),
+                        staff.getTelephone(), staff.getEmail()));
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * Picks an element, favouring the start of the array
+     */
+    private <T> T pick(T[] values) {
+        double u = random.nextDouble();
+        return values[(int) (u * u * values.length)];
+    }
+}
@@ -0,0 +1,359 @@
+package fx;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only, memory-mapped journal of Staff writes that survives crashes.
+ * Every append gets a sequence number and is forced to disk before it returns.
+ * The header holds a checkpoint: the highest sequence known to be in the database.
+ * On open, the records after the checkpoint are read back, keeping the latest per ID,
+ * so writes that had not reached the database are replayed. A torn record at the
+ * end (a crash during an append) fails its checksum and is ignored.
+ *
+ * The file starts with the int magic 0x534A4E4C ("SJNL"), an int version and the long
+ * checkpoint. Each record is an int body length, the body, and an int CRC32 of the body.
+ * The body is the long sequence followed by the nine Staff fields, each a short
+ * UTF-8 length (-1 for null) and the bytes. The unused tail of the file is zero.
+ *
+ * A full journal is compacted into its sibling, the file name with ".1" appended, which
+ * then holds only the unflushed records; the two files take turns from then on. Java 11
+ * cannot unmap a file, and Windows will not replace or truncate a mapped one, so the
+ * idle file is overwritten in place with its magic written last, and only then is the
+ * magic of the file it replaces zeroed. Open uses whichever file has the magic. If a
+ * crash left both with it, either gives the same unflushed records.
+ * Appends and checkpoints must not run concurrently; callers synchronize.
+ */
+public class StaffJournal implements AutoCloseable {
+
+    public static final int MAGIC = 0x534A4E4C;
+    public static final int VERSION = 1;
+    public static final int DEFAULT_CAPACITY = 8 * 1024 * 1024;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int CHECKPOINT_OFFSET = 8;
+
+    private static final int CLEAR_CHUNK = 64 * 1024;
+
+    /**
+     * One journaled write
+     */
+    public static final class Entry {
+        private final long sequence;
+        private final Staff staff;
+
+        Entry(long sequence, Staff staff) {
+            this.sequence = sequence;
+            this.staff = staff;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public Staff getStaff() {
+            return staff;
+        }
+    }
+
+    // The file in use and its sibling, which the next compaction writes to
+    private Path file;
+    private Path idleFile;
+    private final int capacity;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long checkpoint;
+    private long nextSequence;
+
+    // Latest record per ID after the checkpoint, in sequence order, as found on open
+    private final List<Entry> recovered = new ArrayList<>();
+
+    public StaffJournal(Path file, int capacity) throws IOException {
+        if (capacity < HEADER_SIZE * 2) {
+            throw new IllegalArgumentException("Journal capacity too small: " + capacity);
+        }
+        this.capacity = capacity;
+        Path sibling = file.resolveSibling(file.getFileName() + ".1");
+        boolean primary = isJournal(file);
+        boolean secondary = isJournal(sibling);
+        this.file = !primary && secondary ? sibling : file;
+        this.idleFile = this.file == file ? sibling : file;
+        boolean existed = Files.exists(this.file);
+        map(this.file);
+        if (primary || secondary) {
+            recover();
+            if (primary && secondary) {
+                invalidate(idleFile);
+            }
+        } else {
+            // A file left without its magic may still hold records
+            if (existed) {
+                clear(buffer, HEADER_SIZE, buffer.limit());
+            }
+            writeHeader(buffer, 0);
+            buffer.position(HEADER_SIZE);
+            buffer.force();
+            nextSequence = 1;
+        }
+    }
+
+    /**
+     * Whether the file holds a journal; false if it is missing or lost its magic to its
+     * sibling at a compaction
+     */
+    private static boolean isJournal(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) < HEADER_SIZE) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(8);
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && in.read(header, header.position()) > 0) {
+                // Read the magic and version
+            }
+        }
+        int magic = header.getInt(0);
+        if (magic == 0) {
+            return false;
+        }
+        if (magic != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not a Staff journal: " + path);
+        }
+        return true;
+    }
+
+    /**
+     * Zeroes the magic of a file that is not mapped
+     */
+    private static void invalidate(Path path) throws IOException {
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            out.write(ByteBuffer.allocate(Integer.BYTES), 0);
+            out.force(false);
+        }
+    }
+
+    private void map(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long size = Math.max(capacity, channel.size());
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private static void writeHeader(ByteBuffer target, long checkpoint) {
+        target.putInt(0, MAGIC);
+        target.putInt(4, VERSION);
+        target.putLong(CHECKPOINT_OFFSET, checkpoint);
+    }
+
+    /**
+     * Reads the records after the checkpoint and positions the buffer after the last valid record
+     */
+    private void recover() {
+        checkpoint = buffer.getLong(CHECKPOINT_OFFSET);
+        long lastSequence = checkpoint;
+        Map<String, Entry> latest = new LinkedHashMap<>();
+        int position = HEADER_SIZE;
+        while (true) {
+            Entry entry = readRecord(position);
+            if (entry == null) {
+                break;
+            }
+            position += Integer.BYTES + buffer.getInt(position) + Integer.BYTES;
+            lastSequence = Math.max(lastSequence, entry.sequence);
+            if (entry.sequence > checkpoint) {
+                // Re-inserting keeps the map in sequence order
+                latest.remove(entry.staff.getId());
+                latest.put(entry.staff.getId(), entry);
+            }
+        }
+        // Zero a torn record as far as its length reaches, so a shorter record appended
+        // over it is not followed by its remains; a garbled length clears to the end
+        int length = position + Integer.BYTES <= buffer.limit() ? buffer.getInt(position) : 0;
+        if (length != 0) {
+            long end = (long) position + Integer.BYTES + length + Integer.BYTES;
+            clear(buffer, position, length < 0 || end > buffer.limit() ? buffer.limit() : (int) end);
+            buffer.force();
+        }
+        buffer.position(position);
+        nextSequence = lastSequence + 1;
+        recovered.addAll(latest.values());
+    }
+
+    private static void clear(ByteBuffer target, int from, int to) {
+        byte[] zeros = new byte[Math.min(CLEAR_CHUNK, Math.max(0, to - from))];
+        ByteBuffer region = target.duplicate();
+        region.position(from).limit(to);
+        while (region.hasRemaining()) {
+            region.put(zeros, 0, Math.min(zeros.length, region.remaining()));
+        }
+    }
+
+    /**
+     * The record at the position, or null at the end of the journal or at a damaged record
+     */
+    private Entry readRecord(int position) {
+        if (position + Integer.BYTES > buffer.limit()) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if (length <= Long.BYTES || position + Integer.BYTES + length + Integer.BYTES > buffer.limit()) {
+            return null;
+        }
+        ByteBuffer body = buffer.duplicate();
+        body.position(position + Integer.BYTES).limit(position + Integer.BYTES + length);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES + length)) {
+            return null;
+        }
+        try {
+            long sequence = body.getLong();
+            String[] fields = new String[9];
+            for (int i = 0; i < fields.length; i++) {
+                short size = body.getShort();
+                if (size >= 0) {
+                    byte[] bytes = new byte[size];
+                    body.get(bytes);
+                    fields[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+            }
+            return new Entry(sequence, new Staff(fields[0], fields[1], fields[2], fields[3], fields[4],
+                    fields[5], fields[6], fields[7], fields[8]));
+        } catch (BufferUnderflowException | IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes found on open that had not reached the database, latest per ID, oldest first
+     */
+    public List<Entry> getRecovered() {
+        return new ArrayList<>(recovered);
+    }
+
+    /**
+     * Appends a write and forces it to disk; when the journal is full it is first
+     * compacted down to the given unflushed entries. They are only read if it compacts,
+     * so a live view of the caller's queue will do.
+     */
+    public Entry append(Staff staff, Collection<Entry> unflushed) throws IOException {
+        Entry entry = new Entry(nextSequence, staff);
+        byte[] record = encode(entry);
+        if (buffer.remaining() < record.length + Integer.BYTES) {
+            compact(unflushed);
+            if (buffer.remaining() < record.length + Integer.BYTES) {
+                throw new IOException("Staff journal is full: " + unflushed.size() + " unflushed writes");
+            }
+        }
+        buffer.put(record);
+        buffer.force();
+        nextSequence++;
+        return entry;
+    }
+
+    private static byte[] encode(Entry entry) {
+        Staff staff = entry.staff;
+        String[] fields = {
+            staff.getId(), staff.getLastName(), staff.getFirstName(), staff.getMi(), staff.getAddress(),
+            staff.getCity(), staff.getState(), staff.getTelephone(), staff.getEmail()
+        };
+        byte[][] encoded = new byte[fields.length][];
+        int length = Long.BYTES;
+        for (int i = 0; i < fields.length; i++) {
+            encoded[i] = fields[i] == null ? null : fields[i].getBytes(StandardCharsets.UTF_8);
+            length += Short.BYTES + (encoded[i] == null ? 0 : encoded[i].length);
+        }
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + length + Integer.BYTES);
+        record.putInt(length);
+        record.putLong(entry.sequence);
+        for (byte[] bytes : encoded) {
+            record.putShort((short) (bytes == null ? -1 : bytes.length));
+            if (bytes != null) {
+                record.put(bytes);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), Integer.BYTES, length);
+        record.putInt((int) crc.getValue());
+        return record.array();
+    }
+
+    /**
+     * Records that every write up to and including the sequence is in the database
+     */
+    public void checkpoint(long sequence) {
+        if (sequence > checkpoint) {
+            checkpoint = sequence;
+            buffer.putLong(CHECKPOINT_OFFSET, sequence);
+            buffer.force();
+        }
+    }
+
+    /**
+     * Bytes used by the header and records
+     */
+    public int getUsedBytes() {
+        return buffer.position();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Moves the journal to the idle file, holding only the given entries. The current
+     * file keeps its magic until the new one is complete, so a crash leaves one or the other.
+     */
+    public void compact(Collection<Entry> unflushed) throws IOException {
+        FileChannel out = FileChannel.open(idleFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedByteBuffer target;
+        try {
+            // The file may still be mapped from its last turn, so it is overwritten, not truncated
+            target = out.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(capacity, out.size()));
+            target.putInt(0, 0);
+            target.position(HEADER_SIZE);
+            for (Entry entry : unflushed) {
+                byte[] record = encode(entry);
+                if (target.remaining() < record.length + Integer.BYTES) {
+                    throw new IOException("Staff journal is full: " + unflushed.size() + " unflushed writes");
+                }
+                target.put(record);
+            }
+            clear(target, target.position(), target.limit());
+            target.force();
+            writeHeader(target, checkpoint);
+            target.force();
+        } catch (IOException | RuntimeException ex) {
+            out.close();
+            throw ex;
+        }
+        // The old mapping lasts until it is collected, but without its magic it is not read again
+        buffer.putInt(0, 0);
+        buffer.force();
+        channel.close();
+        Path previous = file;
+        file = idleFile;
+        idleFile = previous;
+        channel = out;
+        buffer = target;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+}
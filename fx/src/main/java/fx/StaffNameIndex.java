@@ -0,0 +1,106 @@
+package fx;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A local prefix index over Staff last and first names.
+ * Keys are lower-cased names followed by the record ID, kept in a sorted concurrent
+ * map, so a prefix search is one range scan with no database round trip.
+ * The index is filled from the local replica of Staff, seeded from its snapshot and
+ * then from its syncs, and kept current by the insert and update paths through
+ * {@link #put(Staff)}.
+ */
+public class StaffNameIndex {
+
+    // Separates the name from the ID so equal names with different IDs stay distinct
+    private static final char SEPARATOR = '\u0000';
+    private static final char MAX_CHAR = '\uffff';
+
+    private final ConcurrentSkipListMap<String, Staff> byName = new ConcurrentSkipListMap<>();
+
+    // The record currently indexed for each ID, so an update can remove the old names
+    private final ConcurrentHashMap<String, Staff> byId = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    public StaffNameIndex() {
+    }
+
+    /**
+     * Marks the index complete once it was filled by other means, such as a replica's first sync
+     */
+    public void setLoaded() {
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Adds a record unless its ID is already indexed, for seeding from an older source
+     * without overwriting newer records put meanwhile
+     */
+    public synchronized void putIfAbsent(Staff staff) {
+        if (!byId.containsKey(staff.getId())) {
+            put(staff);
+        }
+    }
+
+    /**
+     * Adds a record or replaces the names indexed for its ID
+     */
+    public synchronized void put(Staff staff) {
+        Staff previous = byId.put(staff.getId(), staff);
+        if (previous != null) {
+            byName.remove(key(previous.getLastName(), previous.getId()));
+            byName.remove(key(previous.getFirstName(), previous.getId()));
+        }
+        if (staff.getLastName() != null) {
+            byName.put(key(staff.getLastName(), staff.getId()), staff);
+        }
+        if (staff.getFirstName() != null) {
+            byName.put(key(staff.getFirstName(), staff.getId()), staff);
+        }
+    }
+
+    /**
+     * Returns up to limit records whose last or first name starts with the prefix,
+     * ordered by name. A record matching on both names is returned once.
+     */
+    public List<Staff> search(String prefix, int limit) {
+        String from = normalize(prefix);
+        if (from.isEmpty()) {
+            return new ArrayList<>();
+        }
+        ConcurrentNavigableMap<String, Staff> range = byName.subMap(from, true, from + MAX_CHAR, false);
+
+        Map<String, Staff> matches = new LinkedHashMap<>();
+        for (Staff staff : range.values()) {
+            matches.putIfAbsent(staff.getId(), staff);
+            if (matches.size() >= limit) {
+                break;
+            }
+        }
+        return new ArrayList<>(matches.values());
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    private static String key(String name, String id) {
+        return normalize(name) + SEPARATOR + id;
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,488 @@
+package fx;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A local copy of the Staff table kept current by delta sync. Each sync reads only
+ * the rows whose updatedAt column moved past the last one seen, in keyset pages on
+ * (updatedAt, id), so a refresh costs the size of the change rather than the table.
+ * The first sync reads everything.
+ *
+ * A transaction can commit after rows with later timestamps were read, so each sync
+ * also re-reads rows stamped up to a few seconds before the previous sync started
+ * (by the database clock) that are not newer than the watermark. Applying a row twice
+ * changes nothing, and once the table is quiet nothing is re-read. Deletes are not tracked;
+ * {@link #resync()} starts over from an empty replica.
+ *
+ * A replica can start from a {@link StaffSnapshot} written by an earlier session. The
+ * snapshot stays on disk as the base layer and only the rows changed since it was taken
+ * are held in memory, so the replica answers lookups as soon as the file is mapped.
+ * {@link #validate(Connection)} compares the row count with the live table and starts
+ * over if rows were deleted meanwhile.
+ */
+public class StaffReplica implements AutoCloseable {
+
+    public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 5000;
+
+    // Rows per keyset page
+    static final int PAGE_SIZE = 1000;
+
+    // Longest commit delay covered: rows stamped this long before the previous sync are read again
+    static final long OVERLAP_MILLIS = 5000;
+
+    /**
+     * What one sync pulled
+     */
+    public static final class SyncResult {
+        private final int rowsRead;
+        private final int rowsChanged;
+        private final int queries;
+        private final long nanos;
+
+        SyncResult(int rowsRead, int rowsChanged, int queries, long nanos) {
+            this.rowsRead = rowsRead;
+            this.rowsChanged = rowsChanged;
+            this.queries = queries;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Rows returned by the database, including the overlap read again
+         */
+        public int getRowsRead() {
+            return rowsRead;
+        }
+
+        /**
+         * Rows that were new or different from the local copy
+         */
+        public int getRowsChanged() {
+            return rowsChanged;
+        }
+
+        public int getQueries() {
+            return queries;
+        }
+
+        public double getMillis() {
+            return nanos / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("read=%d changed=%d queries=%d time=%.1f ms", rowsRead, rowsChanged, queries,
+                    getMillis());
+        }
+    }
+
+    private volatile ConnectionPool pool;
+
+    // Rows changed since the base snapshot, or all rows when there is none
+    private final ConcurrentHashMap<String, Staff> rows = new ConcurrentHashMap<>();
+    private volatile StaffSnapshot base;
+
+    // The file the base was mapped from, which stays mapped after the base is dropped
+    private final Path baseFile;
+
+    // IDs of the rows in the map that are not in the base snapshot, in the snapshot's
+    // order, and their count
+    private final ConcurrentSkipListSet<String> addedIds = new ConcurrentSkipListSet<>(StaffSnapshot.ID_ORDER);
+    private final AtomicInteger added = new AtomicInteger();
+
+    // Notified on the sync thread with the rows each sync found new or changed
+    private final List<Consumer<List<Staff>>> listeners = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService scheduler;
+
+    // Latest updatedAt applied; null until the first sync finishes
+    private volatile Timestamp watermark;
+
+    // Database time when the last sync started
+    private Timestamp syncedAt;
+    private volatile SyncResult lastSync;
+    private volatile String lastError;
+    private long syncs;
+    private long totalRowsRead;
+
+    public StaffReplica(ConnectionPool pool) {
+        this.pool = pool;
+        this.baseFile = null;
+    }
+
+    /**
+     * A replica starting from a snapshot, which it closes when it no longer needs it.
+     * The pool may be null until {@link #setPool} is called; lookups work meanwhile.
+     */
+    public StaffReplica(ConnectionPool pool, StaffSnapshot base) {
+        this.pool = pool;
+        this.base = base;
+        this.baseFile = base.getFile();
+        this.watermark = base.getWatermark();
+        this.syncedAt = base.getSyncedAt();
+    }
+
+    public void setPool(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Registers a listener for rows the sync brought in or changed
+     */
+    public void addListener(Consumer<List<Staff>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Syncs at the given interval on a background daemon thread, the first time
+     * one interval from now; call {@link #syncNow()} first for an immediate sync
+     */
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "staff-replica-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                syncNow();
+            } catch (SQLException | RuntimeException ex) {
+                // Retried at the next interval
+                lastError = ex.getMessage();
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Pulls the rows changed since the last sync into the replica
+     */
+    public SyncResult syncNow() throws SQLException {
+        ConnectionPool connections = pool;
+        if (connections == null) {
+            throw new SQLException("Not connected to database");
+        }
+        try (Connection connection = connections.getConnection()) {
+            return syncNow(connection);
+        }
+    }
+
+    /**
+     * Pulls the rows changed since the last sync over the given connection
+     */
+    public synchronized SyncResult syncNow(Connection connection) throws SQLException {
+        long start = System.nanoTime();
+        Timestamp now = StaffRepository.databaseTime(connection);
+        Timestamp afterTime = new Timestamp(0);
+        if (watermark != null) {
+            long settled = syncedAt.getTime() - OVERLAP_MILLIS;
+            afterTime = new Timestamp(Math.min(watermark.getTime(), settled));
+        }
+        String afterId = "";
+        Timestamp latest = watermark;
+        int read = 0;
+        int queries = 0;
+        List<Staff> changed = new ArrayList<>();
+        while (true) {
+            List<StaffRepository.Change> page =
+                    StaffRepository.findChangedSince(connection, afterTime, afterId, PAGE_SIZE);
+            queries++;
+            for (StaffRepository.Change change : page) {
+                Staff staff = change.getStaff();
+                Staff previous = apply(staff);
+                if (previous == null || !StaffRepository.changedColumns(previous, staff).isEmpty()) {
+                    changed.add(staff);
+                }
+                if (latest == null || change.getUpdatedAt().after(latest)) {
+                    latest = change.getUpdatedAt();
+                }
+            }
+            read += page.size();
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            StaffRepository.Change last = page.get(page.size() - 1);
+            afterTime = last.getUpdatedAt();
+            afterId = last.getStaff().getId();
+        }
+        // An empty table still counts as synced
+        watermark = latest != null ? latest : new Timestamp(0);
+        syncedAt = now;
+        SyncResult result = new SyncResult(read, changed.size(), queries + 1, System.nanoTime() - start);
+        lastSync = result;
+        lastError = null;
+        syncs++;
+        totalRowsRead += read;
+        if (!changed.isEmpty()) {
+            for (Consumer<List<Staff>> listener : listeners) {
+                listener.accept(changed);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stores a row and returns the version it replaced, from the map or the base snapshot
+     */
+    private Staff apply(Staff staff) {
+        Staff previous = rows.put(staff.getId(), staff);
+        StaffSnapshot snapshot = base;
+        if (previous == null) {
+            previous = snapshot == null ? null : snapshot.find(staff.getId());
+            if (previous == null && addedIds.add(staff.getId())) {
+                added.incrementAndGet();
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Drops the local copy and reads the whole table again
+     */
+    public SyncResult resync() throws SQLException {
+        ConnectionPool connections = pool;
+        if (connections == null) {
+            throw new SQLException("Not connected to database");
+        }
+        try (Connection connection = connections.getConnection()) {
+            return resync(connection);
+        }
+    }
+
+    public synchronized SyncResult resync(Connection connection) throws SQLException {
+        dropBase();
+        rows.clear();
+        addedIds.clear();
+        added.set(0);
+        watermark = null;
+        return syncNow(connection);
+    }
+
+    private void dropBase() {
+        StaffSnapshot snapshot = base;
+        base = null;
+        if (snapshot != null) {
+            try {
+                snapshot.close();
+            } catch (IOException ex) {
+                // Read-only mapping; nothing was lost
+            }
+        }
+    }
+
+    /**
+     * Compares the row count with the live table, which catches rows deleted since the
+     * snapshot or the last sync, and resyncs from scratch if they differ. Returns whether
+     * the counts matched.
+     */
+    public synchronized boolean validate(Connection connection) throws SQLException {
+        if (StaffRepository.count(connection) == size()) {
+            return true;
+        }
+        resync(connection);
+        return false;
+    }
+
+    /**
+     * Whether the replica holds a copy of the whole table, from a sync or a snapshot
+     */
+    public boolean isReady() {
+        return watermark != null;
+    }
+
+    /**
+     * Whether the replica was started from a snapshot that is still its base layer
+     */
+    public boolean hasSnapshot() {
+        return base != null;
+    }
+
+    /**
+     * The local copy of a record, or null if the replica does not have it
+     */
+    public Staff get(String id) {
+        Staff staff = rows.get(id);
+        StaffSnapshot snapshot = base;
+        if (staff == null && snapshot != null) {
+            staff = snapshot.find(id);
+        }
+        return staff;
+    }
+
+    public int size() {
+        StaffSnapshot snapshot = base;
+        return snapshot == null ? rows.size() : snapshot.size() + added.get();
+    }
+
+    /**
+     * A snapshot of every record in the replica, in no particular order
+     */
+    public Collection<Staff> getAll() {
+        StaffSnapshot snapshot = base;
+        if (snapshot == null) {
+            return new ArrayList<>(rows.values());
+        }
+        List<Staff> all = new ArrayList<>(snapshot.size() + added.get());
+        for (int i = 0; i < snapshot.size(); i++) {
+            Staff staff = snapshot.get(i);
+            Staff changed = rows.get(staff.getId());
+            all.add(changed != null ? changed : staff);
+        }
+        for (String id : addedIds) {
+            Staff staff = rows.get(id);
+            if (staff != null) {
+                all.add(staff);
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Up to limit records with IDs after the given one, in {@link StaffSnapshot#ID_ORDER}, from the base
+     * snapshot with changes applied and rows added since merged in; null when there is
+     * no snapshot to page through
+     */
+    public List<Staff> findPageAfter(String afterId, int limit) {
+        StaffSnapshot snapshot = base;
+        if (snapshot == null) {
+            return null;
+        }
+        List<Staff> extra = addedRows(addedIds.tailSet(afterId, false), limit);
+        List<Staff> page = merge(overlay(snapshot.findPageAfter(afterId, limit)), extra);
+        return page.size() > limit ? new ArrayList<>(page.subList(0, limit)) : page;
+    }
+
+    /**
+     * Up to limit records with IDs before the given one, in ID order, as for {@link #findPageAfter}
+     */
+    public List<Staff> findPageBefore(String beforeId, int limit) {
+        StaffSnapshot snapshot = base;
+        if (snapshot == null) {
+            return null;
+        }
+        List<Staff> extra = addedRows(addedIds.headSet(beforeId, false).descendingSet(), limit);
+        Collections.reverse(extra);
+        List<Staff> page = merge(overlay(snapshot.findPageBefore(beforeId, limit)), extra);
+        return page.size() > limit ? new ArrayList<>(page.subList(page.size() - limit, page.size())) : page;
+    }
+
+    /**
+     * The rows of up to limit added IDs, in the order given
+     */
+    private List<Staff> addedRows(Iterable<String> ids, int limit) {
+        List<Staff> result = new ArrayList<>();
+        for (String id : ids) {
+            if (result.size() == limit) {
+                break;
+            }
+            Staff staff = rows.get(id);
+            if (staff != null) {
+                result.add(staff);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Merges two lists of records sorted by ID
+     */
+    private static List<Staff> merge(List<Staff> a, List<Staff> b) {
+        if (b.isEmpty()) {
+            return a;
+        }
+        List<Staff> merged = new ArrayList<>(a.size() + b.size());
+        int i = 0;
+        int j = 0;
+        while (i < a.size() || j < b.size()) {
+            if (j == b.size() || (i < a.size() && StaffSnapshot.ID_ORDER.compare(a.get(i).getId(), b.get(j).getId()) < 0)) {
+                merged.add(a.get(i++));
+            } else {
+                merged.add(b.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    private List<Staff> overlay(List<Staff> page) {
+        for (int i = 0; i < page.size(); i++) {
+            Staff changed = rows.get(page.get(i).getId());
+            if (changed != null) {
+                page.set(i, changed);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Writes the replica to a snapshot file for the next start: the given file, or its
+     * sibling if the replica started from a snapshot mapped from the given file, which
+     * cannot be replaced while mapped. Nothing is written before the first sync of this
+     * session, or when the sync found nothing new since the snapshot the replica started
+     * from. Returns the file written, or null.
+     */
+    public synchronized Path writeSnapshot(Path file) throws IOException {
+        if (syncs == 0 || (base != null && rows.isEmpty())) {
+            return null;
+        }
+        Path target = file.equals(baseFile) ? StaffSnapshot.siblingOf(file) : file;
+        StaffSnapshot.write(target, getAll(), watermark, syncedAt);
+        return target;
+    }
+
+    /**
+     * The latest updatedAt applied, or null before the first sync
+     */
+    public Timestamp getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * What the last sync pulled, or null before the first
+     */
+    public SyncResult getLastSync() {
+        return lastSync;
+    }
+
+    /**
+     * Applies a record written locally, so it is visible before the next sync brings it back
+     */
+    public void put(Staff staff) {
+        apply(staff);
+    }
+
+    public synchronized String getStatistics() {
+        return String.format("replica: rows=%d%s syncs=%d rowsRead=%d lastSync=[%s] watermark=%s%s",
+                size(), base == null ? "" : " (snapshot " + base.size() + " + changed " + rows.size() + ")",
+                syncs, totalRowsRead, lastSync == null ? "none" : lastSync, watermark,
+                lastError == null ? "" : " lastError=" + lastError);
+    }
+
+    /**
+     * Stops the background sync
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        dropBase();
+    }
+}
@@ -0,0 +1,609 @@
+package fx;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Plain JDBC operations on the Staff table.
+ * Every method runs on the caller's thread and uses the connection it is given,
+ * so the same code serves the JavaFX applications and headless tools.
+ */
+public final class StaffRepository {
+
+    private static final String UPDATED_AT_COLUMN = "updatedAt TIMESTAMP(3) NOT NULL "
+            + "DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)";
+
+    // Bump whenever CREATE_TABLE_SQL changes, so cached schema checks are redone
+    public static final int SCHEMA_VERSION = 2;
+
+    // updatedAt is maintained by the database on every insert and update, whichever client
+    // makes it, and the index on (updatedAt, id) lets a replica read just the rows changed
+    public static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS Staff (" +
+            "id CHAR(9) NOT NULL PRIMARY KEY, " +
+            "lastName VARCHAR(15), " +
+            "firstName VARCHAR(15), " +
+            "mi CHAR(1), " +
+            "address VARCHAR(20), " +
+            "city VARCHAR(20), " +
+            "state CHAR(2), " +
+            "telephone CHAR(10), " +
+            "email VARCHAR(40), " +
+            UPDATED_AT_COLUMN + ", " +
+            "INDEX Staff_updatedAt (updatedAt, id)" +
+            ")";
+
+    // Brings a Staff table created before change tracking up to date
+    private static final String ADD_UPDATED_AT_SQL = "ALTER TABLE Staff ADD COLUMN " + UPDATED_AT_COLUMN;
+    private static final String ADD_UPDATED_AT_INDEX_SQL = "CREATE INDEX Staff_updatedAt ON Staff (updatedAt, id)";
+
+    // Rows changed after a (updatedAt, id) position, in that order, for keyset paging
+    public static final String CHANGED_SINCE_SQL =
+            "SELECT * FROM Staff WHERE (updatedAt, id) > (?, ?) ORDER BY updatedAt, id LIMIT ?";
+
+    public static final String SELECT_SQL = "SELECT * FROM Staff WHERE id = ?";
+
+    // IDs per IN-list query in a bulk lookup; below MySQL's default eq_range_index_dive_limit
+    // of 200, so the optimizer still estimates each list from the index
+    public static final int DEFAULT_LOOKUP_CHUNK = 128;
+
+    public static final String INSERT_SQL =
+            "INSERT INTO Staff (id, lastName, firstName, mi, address, city, state, telephone, email) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // One round trip whether or not the ID exists; with useAffectedRows=true MySQL reports
+    // 1 for an insert, 2 for an update and 0 when the row already held these values
+    public static final String UPSERT_SQL = INSERT_SQL + " AS new" +
+            " ON DUPLICATE KEY UPDATE lastName = new.lastName, firstName = new.firstName, " +
+            "mi = new.mi, address = new.address, city = new.city, state = new.state, " +
+            "telephone = new.telephone, email = new.email";
+
+    // The same through VALUES(), for servers without the row alias: MySQL before 8.0.19,
+    // and H2 in MySQL mode
+    private static final String VALUES_UPSERT_SQL = INSERT_SQL +
+            " ON DUPLICATE KEY UPDATE lastName = VALUES(lastName), firstName = VALUES(firstName), " +
+            "mi = VALUES(mi), address = VALUES(address), city = VALUES(city), state = VALUES(state), " +
+            "telephone = VALUES(telephone), email = VALUES(email)";
+
+    public static final String UPDATE_SQL =
+            "UPDATE Staff SET lastName = ?, firstName = ?, mi = ?, address = ?, " +
+            "city = ?, state = ?, telephone = ?, email = ? WHERE id = ?";
+
+    // Columns an update may change, in the order of columnValues()
+    private static final String[] UPDATABLE_COLUMNS = {
+        "lastName", "firstName", "mi", "address", "city", "state", "telephone", "email"
+    };
+
+    /**
+     * Outcome of {@link #updateChanged(Connection, Staff, Staff)}
+     */
+    public enum UpdateOutcome {
+        /** The changed columns were written */
+        UPDATED,
+        /** Nothing differed from the loaded record, so nothing was sent */
+        UNCHANGED,
+        /** Someone else changed one of the edited columns since the record was loaded */
+        CONFLICT,
+        /** The record has been deleted since it was loaded */
+        NOT_FOUND
+    }
+
+    /**
+     * What an upsert did to one record
+     */
+    public enum UpsertOutcome { INSERTED, UPDATED, UNCHANGED }
+
+    /**
+     * Totals of a bulk upsert
+     */
+    public static class UpsertCounts {
+        private long inserted;
+        private long updated;
+        private long unchanged;
+        private long unknown;
+
+        UpsertCounts() {
+        }
+
+        public long getInserted() {
+            return inserted;
+        }
+
+        public long getUpdated() {
+            return updated;
+        }
+
+        public long getUnchanged() {
+            return unchanged;
+        }
+
+        /**
+         * Rows the driver reported without a count, e.g. with rewriteBatchedStatements=true
+         */
+        public long getUnknown() {
+            return unknown;
+        }
+
+        public long getTotal() {
+            return inserted + updated + unchanged + unknown;
+        }
+
+        void add(int count) {
+            if (count < 0) {
+                unknown++;
+                return;
+            }
+            switch (outcomeOf(count)) {
+                case INSERTED:
+                    inserted++;
+                    break;
+                case UPDATED:
+                    updated++;
+                    break;
+                default:
+                    unchanged++;
+                    break;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d inserted, %d updated, %d unchanged%s", inserted, updated, unchanged,
+                    unknown > 0 ? ", " + unknown + " without a count" : "");
+        }
+    }
+
+    // Keyset pagination on the primary key; never OFFSET, which rescans every skipped row
+    public static final String PAGE_AFTER_SQL = "SELECT * FROM Staff WHERE id > ? ORDER BY id LIMIT ?";
+    public static final String PAGE_BEFORE_SQL = "SELECT * FROM Staff WHERE id < ? ORDER BY id DESC LIMIT ?";
+
+    private StaffRepository() {
+    }
+
+    /**
+     * Creates the Staff table with the specified schema
+     */
+    public static void createTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(CREATE_TABLE_SQL);
+            if (!hasColumn(statement, "updatedAt")) {
+                statement.executeUpdate(ADD_UPDATED_AT_SQL);
+                statement.executeUpdate(ADD_UPDATED_AT_INDEX_SQL);
+            }
+        }
+    }
+
+    private static boolean hasColumn(Statement statement, String column) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery("SELECT * FROM Staff WHERE 1 = 0")) {
+            ResultSetMetaData meta = resultSet.getMetaData();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                if (meta.getColumnLabel(i).equalsIgnoreCase(column)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A row read by {@link #findChangedSince}, with the time it was last written
+     */
+    public static final class Change {
+        private final Staff staff;
+        private final Timestamp updatedAt;
+
+        Change(Staff staff, Timestamp updatedAt) {
+            this.staff = staff;
+            this.updatedAt = updatedAt;
+        }
+
+        public Staff getStaff() {
+            return staff;
+        }
+
+        public Timestamp getUpdatedAt() {
+            return updatedAt;
+        }
+    }
+
+    /**
+     * Number of rows in the Staff table
+     */
+    public static int count(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM Staff")) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    /**
+     * The database server's current time, the clock updatedAt is set from
+     */
+    public static Timestamp databaseTime(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT CURRENT_TIMESTAMP(3)")) {
+            resultSet.next();
+            return resultSet.getTimestamp(1);
+        }
+    }
+
+    /**
+     * Returns up to limit rows written after the given (updatedAt, id) position,
+     * ordered by updatedAt and id so the last row is the position for the next page
+     */
+    public static List<Change> findChangedSince(Connection connection, Timestamp afterTime, String afterId,
+            int limit) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(CHANGED_SINCE_SQL)) {
+            statement.setTimestamp(1, afterTime);
+            statement.setString(2, afterId);
+            statement.setInt(3, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                List<Change> changes = new ArrayList<>(limit);
+                while (resultSet.next()) {
+                    changes.add(new Change(readStaff(resultSet), resultSet.getTimestamp("updatedAt")));
+                }
+                return changes;
+            }
+        }
+    }
+
+    /**
+     * Returns the record with the given ID, or null if there is none
+     */
+    public static Staff find(Connection connection, String id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_SQL)) {
+            statement.setString(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? readStaff(resultSet) : null;
+            }
+        }
+    }
+
+    /**
+     * Inserts a new record and returns the number of affected rows
+     */
+    public static int insert(Connection connection, Staff staff) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            bindInsert(statement, staff);
+            return statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Inserts the record, or overwrites the record with the same ID, in one statement.
+     * The outcome relies on the connection URL setting useAffectedRows=true.
+     */
+    public static UpsertOutcome upsert(Connection connection, Staff staff) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(upsertSql(connection))) {
+            bindInsert(statement, staff);
+            return outcomeOf(statement.executeUpdate());
+        }
+    }
+
+    /**
+     * Upserts every record as JDBC batches, committing after each batch
+     */
+    public static UpsertCounts upsertAll(Connection connection, Iterable<Staff> records, int batchSize)
+            throws SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        UpsertCounts counts = new UpsertCounts();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(upsertSql(connection))) {
+            int pending = 0;
+            for (Staff staff : records) {
+                bindInsert(statement, staff);
+                statement.addBatch();
+                if (++pending == batchSize) {
+                    executeUpsertBatch(connection, statement, counts);
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                executeUpsertBatch(connection, statement, counts);
+            }
+        } catch (SQLException ex) {
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        return counts;
+    }
+
+    private static void executeUpsertBatch(Connection connection, PreparedStatement statement,
+            UpsertCounts counts) throws SQLException {
+        for (int count : statement.executeBatch()) {
+            counts.add(count);
+        }
+        connection.commit();
+    }
+
+    /**
+     * UPSERT_SQL where the server has the row alias, otherwise the VALUES() form. The
+     * driver caches the metadata, so this costs no round trip.
+     */
+    static String upsertSql(Connection connection) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        boolean rowAlias = meta.getDatabaseProductName().equals("MySQL")
+                && versionAtLeast(meta.getDatabaseProductVersion(), 8, 0, 19);
+        return rowAlias ? UPSERT_SQL : VALUES_UPSERT_SQL;
+    }
+
+    private static boolean versionAtLeast(String version, int... minimum) {
+        String[] parts = version.split("[.-]");
+        for (int i = 0; i < minimum.length; i++) {
+            int part;
+            try {
+                part = i < parts.length ? Integer.parseInt(parts[i]) : 0;
+            } catch (NumberFormatException ex) {
+                return false;
+            }
+            if (part != minimum[i]) {
+                return part > minimum[i];
+            }
+        }
+        return true;
+    }
+
+    static UpsertOutcome outcomeOf(int affectedRows) {
+        if (affectedRows == 1) {
+            return UpsertOutcome.INSERTED;
+        }
+        return affectedRows == 0 ? UpsertOutcome.UNCHANGED : UpsertOutcome.UPDATED;
+    }
+
+    /**
+     * Sets the parameters of an INSERT_SQL statement
+     */
+    public static void bindInsert(PreparedStatement statement, Staff staff) throws SQLException {
+        statement.setString(1, staff.getId());
+        statement.setString(2, staff.getLastName());
+        statement.setString(3, staff.getFirstName());
+        statement.setString(4, staff.getMi());
+        statement.setString(5, staff.getAddress());
+        statement.setString(6, staff.getCity());
+        statement.setString(7, staff.getState());
+        statement.setString(8, staff.getTelephone());
+        statement.setString(9, staff.getEmail());
+    }
+
+    /**
+     * Updates an existing record and returns the number of rows found, 0 when there is
+     * no record with the ID
+     */
+    public static int update(Connection connection, Staff staff) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(UPDATE_SQL)) {
+            // Set parameters (note different order for UPDATE)
+            statement.setString(1, staff.getLastName());
+            statement.setString(2, staff.getFirstName());
+            statement.setString(3, staff.getMi());
+            statement.setString(4, staff.getAddress());
+            statement.setString(5, staff.getCity());
+            statement.setString(6, staff.getState());
+            statement.setString(7, staff.getTelephone());
+            statement.setString(8, staff.getEmail());
+            statement.setString(9, staff.getId());
+            int rows = statement.executeUpdate();
+            // With useAffectedRows=true a row that already held these values counts as 0
+            if (rows == 0 && find(connection, staff.getId()) != null) {
+                return 1;
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Names of the columns whose values differ between the loaded and the edited record
+     */
+    public static List<String> changedColumns(Staff loaded, Staff edited) {
+        String[] before = columnValues(loaded);
+        String[] after = columnValues(edited);
+        List<String> changed = new ArrayList<>();
+        for (int i = 0; i < UPDATABLE_COLUMNS.length; i++) {
+            if (!sameValue(before[i], after[i])) {
+                changed.add(UPDATABLE_COLUMNS[i]);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Writes only the columns that differ between the loaded and the edited record.
+     * The UPDATE also requires each of those columns to still hold its loaded value,
+     * so a concurrent change to the same columns is reported as a CONFLICT instead of
+     * being overwritten, without holding any lock between load and save. Concurrent
+     * changes to other columns are kept. The loaded values are compared byte for byte,
+     * so a change of letter case or accents alone also counts as a concurrent change.
+     */
+    public static UpdateOutcome updateChanged(Connection connection, Staff loaded, Staff edited)
+            throws SQLException {
+        if (!loaded.getId().equals(edited.getId())) {
+            throw new IllegalArgumentException("Cannot change the ID of a record");
+        }
+        String[] before = columnValues(loaded);
+        String[] after = columnValues(edited);
+        String compare = loadedValueComparison(connection);
+        StringBuilder set = new StringBuilder();
+        StringBuilder where = new StringBuilder(" WHERE id = ?");
+        List<String> parameters = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        List<Integer> written = new ArrayList<>();
+        for (int i = 0; i < UPDATABLE_COLUMNS.length; i++) {
+            if (sameValue(before[i], after[i])) {
+                continue;
+            }
+            written.add(i);
+            set.append(set.length() == 0 ? "UPDATE Staff SET " : ", ").append(UPDATABLE_COLUMNS[i]).append(" = ?");
+            parameters.add(after[i]);
+            // The loaded value is known here, so NULL needs no null-safe operator
+            if (before[i] == null) {
+                where.append(" AND ").append(UPDATABLE_COLUMNS[i]).append(" IS NULL");
+            } else {
+                where.append(" AND ").append(String.format(compare, UPDATABLE_COLUMNS[i]));
+                expected.add(before[i]);
+            }
+        }
+        if (parameters.isEmpty()) {
+            return UpdateOutcome.UNCHANGED;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(set.append(where).toString())) {
+            int index = 1;
+            for (String value : parameters) {
+                statement.setString(index++, value);
+            }
+            statement.setString(index++, edited.getId());
+            for (String value : expected) {
+                statement.setString(index++, value);
+            }
+            if (statement.executeUpdate() > 0) {
+                return UpdateOutcome.UPDATED;
+            }
+        }
+        Staff current = find(connection, edited.getId());
+        if (current == null) {
+            return UpdateOutcome.NOT_FOUND;
+        }
+        // With useAffectedRows=true a match that stored nothing new also counts as 0 rows,
+        // e.g. when the database already compares the edited value as equal
+        String[] now = columnValues(current);
+        for (int i : written) {
+            if (!sameValue(now[i], after[i])) {
+                return UpdateOutcome.CONFLICT;
+            }
+        }
+        return UpdateOutcome.UNCHANGED;
+    }
+
+    /**
+     * Condition that a column still holds its loaded value. MySQL's default collation
+     * ignores case and accents, so the column is compared as BINARY there; H2, which
+     * has no BINARY operator, compares strings exactly already.
+     */
+    private static String loadedValueComparison(Connection connection) throws SQLException {
+        return connection.getMetaData().getDatabaseProductName().equals("MySQL") ? "BINARY %s = ?" : "%s = ?";
+    }
+
+    /**
+     * The form shows SQL NULL as an empty field, so the two count as the same value
+     */
+    private static boolean sameValue(String loaded, String edited) {
+        return Objects.equals(loaded == null ? "" : loaded, edited == null ? "" : edited);
+    }
+
+    private static String[] columnValues(Staff staff) {
+        return new String[] {
+            staff.getLastName(), staff.getFirstName(), staff.getMi(), staff.getAddress(),
+            staff.getCity(), staff.getState(), staff.getTelephone(), staff.getEmail()
+        };
+    }
+
+    /**
+     * Returns up to limit records with IDs after the given ID, in ID order.
+     * Pass an empty string to start at the first record.
+     */
+    public static List<Staff> findPageAfter(Connection connection, String afterId, int limit)
+            throws SQLException {
+        return findPage(connection, PAGE_AFTER_SQL, afterId, limit);
+    }
+
+    /**
+     * Returns up to limit records with IDs before the given ID, in ID order
+     */
+    public static List<Staff> findPageBefore(Connection connection, String beforeId, int limit)
+            throws SQLException {
+        List<Staff> page = findPage(connection, PAGE_BEFORE_SQL, beforeId, limit);
+        Collections.reverse(page);
+        return page;
+    }
+
+    /**
+     * Looks up many IDs with one IN-list query per chunk and hands each chunk's records
+     * to the consumer as soon as they are read, in no particular order. Duplicate IDs are
+     * looked up once; IDs that do not exist are simply absent. Chunks are padded by
+     * repeating their last ID to a power of two (or the full chunk size), so a lookup
+     * uses only a handful of distinct SQL texts and they stay in the statement cache.
+     * Returns the number of records found.
+     */
+    public static int findByIds(Connection connection, Collection<String> ids, int chunkSize,
+            Consumer<List<Staff>> onChunk) throws SQLException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        List<String> unique = new ArrayList<>(new LinkedHashSet<>(ids));
+        int found = 0;
+        for (int from = 0; from < unique.size(); from += chunkSize) {
+            List<String> chunk = unique.subList(from, Math.min(unique.size(), from + chunkSize));
+            int size = Math.min(chunkSize, Integer.highestOneBit(chunk.size() * 2 - 1));
+            try (PreparedStatement statement = connection.prepareStatement(inListSql(size))) {
+                for (int i = 0; i < size; i++) {
+                    statement.setString(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                }
+                List<Staff> records = new ArrayList<>(chunk.size());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        records.add(readStaff(resultSet));
+                    }
+                }
+                found += records.size();
+                onChunk.accept(records);
+            }
+        }
+        return found;
+    }
+
+    private static String inListSql(int size) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM Staff WHERE id IN (");
+        for (int i = 0; i < size; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(')').toString();
+    }
+
+    private static List<Staff> findPage(Connection connection, String sql, String id, int limit)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, id);
+            statement.setInt(2, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                List<Staff> page = new ArrayList<>(limit);
+                while (resultSet.next()) {
+                    page.add(readStaff(resultSet));
+                }
+                return page;
+            }
+        }
+    }
+
+    /**
+     * Reads the current row of a Staff result set
+     */
+    public static Staff readStaff(ResultSet resultSet) throws SQLException {
+        return new Staff(
+                resultSet.getString("id"),
+                resultSet.getString("lastName"),
+                resultSet.getString("firstName"),
+                resultSet.getString("mi"),
+                resultSet.getString("address"),
+                resultSet.getString("city"),
+                resultSet.getString("state"),
+                resultSet.getString("telephone"),
+                resultSet.getString("email"));
+    }
+}
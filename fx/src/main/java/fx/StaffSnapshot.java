@@ -0,0 +1,354 @@
+package fx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A read-only, memory-mapped copy of the Staff table in a fixed-width binary file,
+ * for a warm start before the database is reachable. Records are sorted by ID, so a
+ * lookup is a binary search over the mapped file and a page of the browser is a
+ * contiguous run of records; nothing is read into the heap until it is asked for.
+ *
+ * IDs are sorted in {@link #ID_ORDER}, the order of their UTF-8 bytes. The database
+ * sorts by the column's collation, which ignores case and accents, so a page read from
+ * a snapshot may end at a different ID than the same page read from the table, and
+ * paging must not carry a position from one to the other.
+ *
+ * The file starts with a 64-byte header: the int magic 0x53534E50 ("SSNP"), the format
+ * version, {@link StaffRepository#SCHEMA_VERSION}, the record count, and the long
+ * watermark, sync time and creation time in epoch milliseconds. Each record holds the
+ * nine columns at their declared widths (9, 15, 15, 1, 20, 20, 2, 10 and 40 characters),
+ * each as a length byte (0xFF for null) followed by twice the width in UTF-16 chars,
+ * since the database counts a supplementary character as one but UTF-16 takes two.
+ *
+ * A snapshot is kept as a pair of files, the given name and its sibling with ".1"
+ * appended. Java 11 cannot unmap a file and Windows will not replace a mapped one, so
+ * the next snapshot goes to the file the current one was not mapped from, and
+ * {@link #openNewest} picks the later of the two.
+ */
+public class StaffSnapshot implements AutoCloseable {
+
+    public static final int MAGIC = 0x53534E50;
+    public static final int VERSION = 2;
+
+    /**
+     * Order of the IDs in a snapshot: by code point, which is the order of the UTF-8
+     * bytes. {@link String#compareTo} differs from it only for supplementary characters.
+     */
+    public static final Comparator<String> ID_ORDER = StaffSnapshot::compareIds;
+
+    // Column widths of the Staff table, in CREATE_TABLE_SQL order
+    private static final int[] WIDTHS = { 9, 15, 15, 1, 20, 20, 2, 10, 40 };
+    private static final int[] SLOTS = new int[WIDTHS.length];
+    private static final int[] OFFSETS = new int[WIDTHS.length];
+    static final int RECORD_SIZE;
+    static final int HEADER_SIZE = 64;
+    private static final int NULL_LENGTH = 0xFF;
+
+    static {
+        int offset = 0;
+        for (int i = 0; i < WIDTHS.length; i++) {
+            SLOTS[i] = WIDTHS[i] * 2;
+            OFFSETS[i] = offset;
+            offset += 1 + SLOTS[i] * Character.BYTES;
+        }
+        RECORD_SIZE = offset;
+    }
+
+    // A mapped buffer is limited to 2 GB
+    public static final int MAX_RECORDS = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final Timestamp watermark;
+    private final Timestamp syncedAt;
+    private final long createdMillis;
+
+    private StaffSnapshot(Path file, FileChannel channel, MappedByteBuffer buffer) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.count = buffer.getInt(12);
+        this.watermark = new Timestamp(buffer.getLong(16));
+        this.syncedAt = new Timestamp(buffer.getLong(24));
+        this.createdMillis = buffer.getLong(32);
+    }
+
+    /**
+     * Maps a snapshot file, checking that it was written for the current schema and is complete
+     */
+    public static StaffSnapshot open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a Staff snapshot: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a Staff snapshot: " + file);
+            }
+            if (buffer.getInt(8) != StaffRepository.SCHEMA_VERSION) {
+                throw new IOException("Snapshot is for schema version " + buffer.getInt(8));
+            }
+            int count = buffer.getInt(12);
+            if (count < 0 || HEADER_SIZE + (long) count * RECORD_SIZE != size) {
+                throw new IOException("Snapshot is truncated: " + file);
+            }
+            return new StaffSnapshot(file, channel, buffer);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * The other file of the pair named by file
+     */
+    public static Path siblingOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".1");
+    }
+
+    /**
+     * Maps the more recently written of the file and its sibling, or returns null if
+     * neither exists. A file that cannot be opened is passed over for the other one.
+     */
+    public static StaffSnapshot openNewest(Path file) throws IOException {
+        StaffSnapshot newest = null;
+        IOException failure = null;
+        for (Path candidate : new Path[] { file, siblingOf(file) }) {
+            if (!Files.exists(candidate)) {
+                continue;
+            }
+            StaffSnapshot snapshot;
+            try {
+                snapshot = open(candidate);
+            } catch (IOException ex) {
+                failure = ex;
+                continue;
+            }
+            if (newest == null) {
+                newest = snapshot;
+            } else if (snapshot.createdMillis > newest.createdMillis) {
+                newest.close();
+                newest = snapshot;
+            } else {
+                snapshot.close();
+            }
+        }
+        if (newest == null && failure != null) {
+            throw failure;
+        }
+        return newest;
+    }
+
+    /**
+     * Writes the records sorted by ID to a new snapshot file. The file is written beside
+     * the target and moved over it, so readers see the old snapshot or the new one.
+     */
+    public static void write(Path file, Collection<Staff> records, Timestamp watermark, Timestamp syncedAt)
+            throws IOException {
+        if (records.size() > MAX_RECORDS) {
+            throw new IOException("Too many records for a snapshot: " + records.size());
+        }
+        List<Staff> sorted = new ArrayList<>(records);
+        sorted.sort(Comparator.comparing(Staff::getId, ID_ORDER));
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(StaffRepository.SCHEMA_VERSION).putInt(sorted.size());
+            header.putLong(watermark.getTime()).putLong(syncedAt.getTime()).putLong(System.currentTimeMillis());
+            header.clear();
+            writeFully(out, header);
+
+            // Records go out in blocks of about 1 MB
+            ByteBuffer block = ByteBuffer.allocate(RECORD_SIZE * 4096);
+            for (Staff staff : sorted) {
+                if (block.remaining() < RECORD_SIZE) {
+                    block.flip();
+                    writeFully(out, block);
+                    block.clear();
+                }
+                encode(block, staff);
+            }
+            block.flip();
+            writeFully(out, block);
+            out.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static void encode(ByteBuffer block, Staff staff) throws IOException {
+        String[] fields = {
+            staff.getId(), staff.getLastName(), staff.getFirstName(), staff.getMi(), staff.getAddress(),
+            staff.getCity(), staff.getState(), staff.getTelephone(), staff.getEmail()
+        };
+        for (int i = 0; i < fields.length; i++) {
+            String value = fields[i];
+            // A value within the column width in characters always fits its slot
+            if (value != null && value.codePointCount(0, value.length()) > WIDTHS[i]) {
+                throw new IOException("Value too long for the snapshot in record " + staff.getId() + ": " + value);
+            }
+            block.put((byte) (value == null ? NULL_LENGTH : value.length()));
+            for (int c = 0; c < SLOTS[i]; c++) {
+                block.putChar(value != null && c < value.length() ? value.charAt(c) : '\0');
+            }
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * The file this snapshot is mapped from
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Latest updatedAt in the snapshot, where a delta sync picks up
+     */
+    public Timestamp getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * Database time when the sync that produced the snapshot started
+     */
+    public Timestamp getSyncedAt() {
+        return syncedAt;
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    /**
+     * The record at a position in ID order
+     */
+    public Staff get(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + count);
+        }
+        int base = HEADER_SIZE + index * RECORD_SIZE;
+        String[] fields = new String[WIDTHS.length];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = field(base, i);
+        }
+        return new Staff(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5], fields[6], fields[7],
+                fields[8]);
+    }
+
+    private String field(int base, int column) {
+        int position = base + OFFSETS[column];
+        int length = buffer.get(position) & 0xFF;
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        char[] chars = new char[length];
+        for (int c = 0; c < length; c++) {
+            chars[c] = buffer.getChar(position + 1 + c * Character.BYTES);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Position of the record with the ID, or -(insertion point) - 1 if there is none,
+     * as in {@link java.util.Arrays#binarySearch}
+     */
+    public int indexOf(String id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareIds(field(HEADER_SIZE + mid * RECORD_SIZE, 0), id);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static int compareIds(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            char x = a.charAt(i);
+            char y = b.charAt(i);
+            if (x != y) {
+                // Surrogates sort after the rest of the BMP in code point order
+                if (Character.isSurrogate(x) != Character.isSurrogate(y)) {
+                    return Character.isSurrogate(x) ? 1 : -1;
+                }
+                return x - y;
+            }
+        }
+        return a.length() - b.length();
+    }
+
+    /**
+     * The record with the ID, or null
+     */
+    public Staff find(String id) {
+        int index = indexOf(id);
+        return index >= 0 ? get(index) : null;
+    }
+
+    /**
+     * Up to limit records with IDs after the given one, in ID order
+     */
+    public List<Staff> findPageAfter(String afterId, int limit) {
+        int index = indexOf(afterId);
+        int from = index >= 0 ? index + 1 : -index - 1;
+        List<Staff> page = new ArrayList<>(limit);
+        for (int i = from; i < count && page.size() < limit; i++) {
+            page.add(get(i));
+        }
+        return page;
+    }
+
+    /**
+     * Up to limit records with IDs before the given one, in ID order
+     */
+    public List<Staff> findPageBefore(String beforeId, int limit) {
+        int index = indexOf(beforeId);
+        int to = index >= 0 ? index : -index - 1;
+        int from = Math.max(0, to - limit);
+        List<Staff> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(get(i));
+        }
+        return page;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
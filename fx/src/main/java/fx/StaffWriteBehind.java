@@ -0,0 +1,216 @@
+package fx;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind for Staff edits. {@link #save(Staff)} appends the record to a
+ * {@link StaffJournal} and returns as soon as it is on local disk; a background
+ * flusher upserts pending records into the database in batched transactions.
+ * Repeated saves of the same ID before a flush are coalesced, so only the latest
+ * version is written. Writes that were journaled but not flushed when the
+ * application stopped are found again on the next start and flushed then.
+ * If the database cannot be reached the records stay queued and the flusher retries.
+ */
+public class StaffWriteBehind implements AutoCloseable {
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 500;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    // Time close() keeps trying to flush before leaving the rest in the journal
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private volatile ConnectionPool pool;
+    private final StaffJournal journal;
+    private final int batchSize;
+    private final ScheduledExecutorService flusher;
+    private final Object lock = new Object();
+
+    // Latest unflushed write per ID, oldest first; a repeated save moves the ID to the end
+    private final LinkedHashMap<String, StaffJournal.Entry> pending = new LinkedHashMap<>();
+
+    private long saved;
+    private long coalesced;
+    private long flushed;
+    private long batches;
+    private final int recovered;
+    private volatile String lastError;
+
+    public StaffWriteBehind(ConnectionPool pool, Path journalFile) throws IOException {
+        this(pool, journalFile, StaffJournal.DEFAULT_CAPACITY, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_BATCH_SIZE);
+    }
+
+    public StaffWriteBehind(ConnectionPool pool, Path journalFile, int journalCapacity,
+            long flushIntervalMillis, int batchSize) throws IOException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.journal = new StaffJournal(journalFile, journalCapacity);
+        List<StaffJournal.Entry> replay = journal.getRecovered();
+        for (StaffJournal.Entry entry : replay) {
+            pending.put(entry.getStaff().getId(), entry);
+        }
+        recovered = replay.size();
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "staff-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, 0, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets the pool to flush through, for a write-behind opened before the database
+     * connected; until then saves are only journaled
+     */
+    public void setPool(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Journals the record and returns; it reaches the database with the next flush
+     */
+    public void save(Staff staff) throws IOException {
+        synchronized (lock) {
+            StaffJournal.Entry entry = journal.append(staff, pending.values());
+            if (pending.remove(staff.getId()) != null) {
+                coalesced++;
+            }
+            pending.put(staff.getId(), entry);
+            saved++;
+        }
+    }
+
+    /**
+     * The queued version of a record that has not been flushed yet, or null
+     */
+    public Staff getPending(String id) {
+        synchronized (lock) {
+            StaffJournal.Entry entry = pending.get(id);
+            return entry == null ? null : entry.getStaff();
+        }
+    }
+
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Writes found in the journal on startup
+     */
+    public int getRecoveredCount() {
+        return recovered;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Upserts the oldest pending writes in one transaction and returns how many were written.
+     * Only the flusher thread calls this while the write-behind is open.
+     */
+    int flush() throws SQLException, IOException {
+        List<StaffJournal.Entry> batch = new ArrayList<>();
+        synchronized (lock) {
+            Iterator<StaffJournal.Entry> it = pending.values().iterator();
+            while (it.hasNext() && batch.size() < batchSize) {
+                batch.add(it.next());
+            }
+            if (batch.isEmpty()) {
+                // Everything is in the database; start the journal over once it has grown
+                if (journal.getUsedBytes() > journal.getCapacity() / 2) {
+                    journal.compact(new ArrayList<>());
+                }
+                return 0;
+            }
+        }
+
+        List<Staff> records = new ArrayList<>(batch.size());
+        for (StaffJournal.Entry entry : batch) {
+            records.add(entry.getStaff());
+        }
+        ConnectionPool connections = pool;
+        if (connections == null) {
+            throw new SQLException("Not connected to database");
+        }
+        try (Connection connection = connections.getConnection()) {
+            StaffRepository.upsertAll(connection, records, records.size());
+        }
+
+        synchronized (lock) {
+            for (StaffJournal.Entry entry : batch) {
+                // A save that arrived during the flush stays queued
+                pending.remove(entry.getStaff().getId(), entry);
+            }
+            // The batch is a prefix in sequence order, so everything up to its end is written
+            journal.checkpoint(batch.get(batch.size() - 1).getSequence());
+            flushed += batch.size();
+            batches++;
+        }
+        lastError = null;
+        return batch.size();
+    }
+
+    private void flushQuietly() {
+        try {
+            while (flush() == batchSize) {
+                // Keep draining while full batches are waiting
+            }
+        } catch (SQLException | IOException | RuntimeException ex) {
+            // Left in the journal; the next run retries
+            lastError = ex.getMessage();
+        }
+    }
+
+    /**
+     * A one-line summary of the queue for display
+     */
+    public String getStatistics() {
+        synchronized (lock) {
+            return String.format("write-behind: pending=%d saved=%d coalesced=%d flushed=%d batches=%d"
+                    + " recovered=%d journal=%,d/%,d bytes%s",
+                    pending.size(), saved, coalesced, flushed, batches, recovered,
+                    journal.getUsedBytes(), journal.getCapacity(),
+                    lastError == null ? "" : " lastError=" + lastError);
+        }
+    }
+
+    /**
+     * Stops the flusher after a last attempt to write what is pending;
+     * anything still unwritten stays in the journal for the next start
+     */
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT_MILLIS;
+            while (getPendingCount() > 0 && System.currentTimeMillis() < deadline && flush() > 0) {
+                // Drain in batches until empty or out of time
+            }
+        } catch (SQLException ex) {
+            lastError = ex.getMessage();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (lock) {
+                journal.close();
+            }
+        }
+    }
+}
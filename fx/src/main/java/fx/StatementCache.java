@@ -0,0 +1,180 @@
+package fx;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded LRU cache of prepared statements for one physical connection, keyed by SQL text.
+ * Statements handed out by {@link #prepare(String)} go back to the cache when closed
+ * instead of being closed, so a repeated statement is parsed and planned only once.
+ * A connection is used by one thread at a time, so the cache is not thread safe.
+ */
+class StatementCache {
+
+    public static final int DEFAULT_CAPACITY = 32;
+
+    private final Connection connection;
+    private final int capacity;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    // Access-ordered so the eldest entry is the least recently used statement
+    private final LinkedHashMap<String, CachedStatement> statements =
+            new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                    if (size() <= capacity) {
+                        return false;
+                    }
+                    eldest.getValue().evict();
+                    return true;
+                }
+            };
+
+    /**
+     * Creates a cache whose hits and misses are added to the given counters,
+     * which may be shared by all connections of a pool
+     */
+    StatementCache(Connection connection, int capacity, LongAdder hits, LongAdder misses) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * Returns a cached statement for the SQL text, preparing it on a miss.
+     * If the cached statement is already open (the same SQL twice at once),
+     * an ordinary uncached statement is returned.
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        CachedStatement cached = statements.get(sql);
+        if (cached != null && cached.inUse) {
+            misses.increment();
+            return connection.prepareStatement(sql);
+        }
+        if (cached != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            cached = new CachedStatement(connection.prepareStatement(sql));
+            statements.put(sql, cached);
+        }
+        cached.inUse = true;
+        return cached.open();
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    /**
+     * Closes every cached statement
+     */
+    void close() {
+        Iterator<CachedStatement> it = statements.values().iterator();
+        while (it.hasNext()) {
+            it.next().evict();
+            it.remove();
+        }
+    }
+
+    /**
+     * A physical prepared statement owned by the cache
+     */
+    private static class CachedStatement {
+
+        final PreparedStatement physical;
+        boolean inUse;
+        boolean evicted;
+
+        CachedStatement(PreparedStatement physical) {
+            this.physical = physical;
+        }
+
+        PreparedStatement open() {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, new LogicalStatement(this));
+        }
+
+        /**
+         * Makes the statement ready for the next caller, or closes it if it was evicted meanwhile
+         */
+        void release() {
+            inUse = false;
+            try {
+                if (evicted) {
+                    physical.close();
+                } else {
+                    physical.clearParameters();
+                    physical.clearBatch();
+                }
+            } catch (SQLException ex) {
+                evicted = true;
+            }
+        }
+
+        /**
+         * Removed from the cache; closed now or as soon as its current user is done
+         */
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                try {
+                    physical.close();
+                } catch (SQLException ex) {
+                    // Closing anyway
+                }
+            }
+        }
+    }
+
+    /**
+     * Delegates to the cached statement until closed, then returns it to the cache
+     */
+    private static class LogicalStatement implements InvocationHandler {
+
+        private final CachedStatement cached;
+        private boolean logicallyClosed;
+
+        LogicalStatement(CachedStatement cached) {
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!logicallyClosed) {
+                        logicallyClosed = true;
+                        cached.release();
+                    }
+                    return null;
+                case "isClosed":
+                    return logicallyClosed || cached.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    if (logicallyClosed) {
+                        throw new SQLException("Statement has been returned to the cache");
+                    }
+            }
+            try {
+                return method.invoke(cached.physical, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+}
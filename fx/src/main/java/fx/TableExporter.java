@@ -0,0 +1,308 @@
+package fx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Exports a whole table (Staff, Temp, ...) to a CSV or binary file in constant memory.
+ * Rows come from a forward-only, read-only streaming result set and are written
+ * through a fixed-size direct buffer to a FileChannel, so tables far larger than the
+ * heap can be exported. An export can be cancelled from another thread.
+ *
+ * The binary format is: the int magic 0x54424C58 ("TBLX"), an int format version,
+ * an int column count, then for each column a short-length-prefixed UTF-8 name and an
+ * int java.sql.Types code. Each row follows as one value per column: a byte that is
+ * 0 for SQL NULL and 1 otherwise, then an 8-byte double for floating-point columns
+ * or an int length and UTF-8 bytes for everything else. All numbers are big-endian.
+ */
+public class TableExporter {
+
+    public enum Format { CSV, BINARY }
+
+    public static final int BINARY_MAGIC = 0x54424C58;
+    public static final int BINARY_VERSION = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL_ROWS = 10_000;
+    private static final Pattern TABLE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private final Format format;
+    private volatile boolean cancelled;
+    private volatile Statement runningStatement;
+
+    public TableExporter(Format format) {
+        this.format = format;
+    }
+
+    /**
+     * Picks CSV for .csv files and the binary format for anything else
+     */
+    public static Format formatFor(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(".csv") ? Format.CSV : Format.BINARY;
+    }
+
+    /**
+     * Progress and outcome of an export
+     */
+    public static class Stats {
+        private final String table;
+        private final long startNanos = System.nanoTime();
+        private long rows;
+        private long bytes;
+        private long elapsedNanos;
+        private boolean cancelled;
+
+        Stats(String table) {
+            this.table = table;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows / getElapsedSeconds();
+        }
+
+        public double getMegabytesPerSecond() {
+            return elapsedNanos == 0 ? 0 : bytes / 1e6 / getElapsedSeconds();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d rows, %.1f MB in %.1f s (%.0f rows/s, %.1f MB/s)%s",
+                    table, rows, bytes / 1e6, getElapsedSeconds(), getRowsPerSecond(),
+                    getMegabytesPerSecond(), cancelled ? " - cancelled" : "");
+        }
+    }
+
+    /**
+     * Stops a running export; the partly written file is deleted
+     */
+    public void cancel() {
+        cancelled = true;
+        Statement statement = runningStatement;
+        if (statement != null) {
+            try {
+                // Closing a streaming MySQL result set would read every remaining row first
+                statement.cancel();
+            } catch (SQLException ex) {
+                // The export loop stops at the next row anyway
+            }
+        }
+    }
+
+    /**
+     * Writes every row of the table to the file, reporting progress every 10,000 rows.
+     * If the export fails or is cancelled, the partly written file is deleted.
+     */
+    public Stats export(Connection connection, String table, Path file, Consumer<Stats> progress)
+            throws IOException, SQLException {
+        if (!TABLE_NAME.matcher(table).matches()) {
+            throw new IllegalArgumentException("Invalid table name: " + table);
+        }
+        Stats stats = new Stats(table);
+        boolean complete = false;
+
+        try (Statement statement = connection.createStatement(
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            JdbcUtil.enableStreaming(statement);
+            runningStatement = statement;
+
+            try (ResultSet resultSet = statement.executeQuery("SELECT * FROM " + table)) {
+                ChannelWriter out = new ChannelWriter(channel);
+                ResultSetMetaData meta = resultSet.getMetaData();
+                int columns = meta.getColumnCount();
+                boolean[] floating = new boolean[columns + 1];
+                for (int i = 1; i <= columns; i++) {
+                    int type = meta.getColumnType(i);
+                    floating[i] = type == Types.DOUBLE || type == Types.FLOAT || type == Types.REAL;
+                }
+                writeHeader(out, meta);
+
+                while (!cancelled && resultSet.next()) {
+                    writeRow(out, resultSet, floating);
+                    stats.rows++;
+                    if (stats.rows % PROGRESS_INTERVAL_ROWS == 0 && progress != null) {
+                        stats.bytes = out.written;
+                        stats.elapsedNanos = System.nanoTime() - stats.startNanos;
+                        progress.accept(stats);
+                    }
+                }
+                out.flush();
+                stats.bytes = out.written;
+                complete = !cancelled;
+            }
+        } catch (SQLException ex) {
+            if (!cancelled) {
+                throw ex;
+            }
+        } finally {
+            runningStatement = null;
+            if (!complete) {
+                deleteQuietly(file);
+            }
+        }
+
+        stats.elapsedNanos = System.nanoTime() - stats.startNanos;
+        stats.cancelled = cancelled;
+        return stats;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            // Keep the exception that ended the export
+        }
+    }
+
+    private void writeHeader(ChannelWriter out, ResultSetMetaData meta) throws IOException, SQLException {
+        int columns = meta.getColumnCount();
+        if (format == Format.CSV) {
+            for (int i = 1; i <= columns; i++) {
+                if (i > 1) {
+                    out.put((byte) ',');
+                }
+                out.put(meta.getColumnLabel(i).getBytes(StandardCharsets.UTF_8));
+            }
+            out.put((byte) '\n');
+        } else {
+            out.putInt(BINARY_MAGIC);
+            out.putInt(BINARY_VERSION);
+            out.putInt(columns);
+            for (int i = 1; i <= columns; i++) {
+                byte[] name = meta.getColumnLabel(i).getBytes(StandardCharsets.UTF_8);
+                out.putShort((short) name.length);
+                out.put(name);
+                out.putInt(meta.getColumnType(i));
+            }
+        }
+    }
+
+    private void writeRow(ChannelWriter out, ResultSet resultSet, boolean[] floating)
+            throws IOException, SQLException {
+        for (int i = 1; i < floating.length; i++) {
+            if (format == Format.CSV) {
+                if (i > 1) {
+                    out.put((byte) ',');
+                }
+                String value = resultSet.getString(i);
+                if (value != null) {
+                    out.put(csvField(value).getBytes(StandardCharsets.UTF_8));
+                }
+            } else if (floating[i]) {
+                double value = resultSet.getDouble(i);
+                boolean isNull = resultSet.wasNull();
+                out.put((byte) (isNull ? 0 : 1));
+                if (!isNull) {
+                    out.putDouble(value);
+                }
+            } else {
+                String value = resultSet.getString(i);
+                out.put((byte) (value == null ? 0 : 1));
+                if (value != null) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    out.putInt(bytes.length);
+                    out.put(bytes);
+                }
+            }
+        }
+        if (format == Format.CSV) {
+            out.put((byte) '\n');
+        }
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Buffers writes in one direct buffer and drains it to the channel when full
+     */
+    private static class ChannelWriter {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long written;
+
+        ChannelWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void put(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void putShort(short value) throws IOException {
+            ensure(Short.BYTES);
+            buffer.putShort(value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package fx;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Runs the same aggregates over Temp three ways: on the in-memory {@link TempColumns}
+ * with the common fork-join pool, on the columns with a single thread, and as SQL
+ * against the table. Each is repeated and the best time kept, and the answers are
+ * checked against each other, so a fast wrong answer does not pass as a speedup.
+ * Without a connection only the in-memory sides run, e.g. for generated columns.
+ */
+public class TempAnalyzer {
+
+    public static final int DEFAULT_REPETITIONS = 3;
+    public static final int DEFAULT_BUCKETS = 20;
+
+    // Sums added in a different order differ in the last bits
+    private static final double SUM_TOLERANCE = 1e-9;
+
+    /**
+     * One timed way of answering a query
+     */
+    private interface Query<T> {
+        T run() throws SQLException;
+    }
+
+    /**
+     * Times of one query on each side
+     */
+    public static final class Result {
+        private final String query;
+        private final long parallelNanos;
+        private final long sequentialNanos;
+        private final long sqlNanos;
+        private final boolean matched;
+
+        Result(String query, long parallelNanos, long sequentialNanos, long sqlNanos, boolean matched) {
+            this.query = query;
+            this.parallelNanos = parallelNanos;
+            this.sequentialNanos = sequentialNanos;
+            this.sqlNanos = sqlNanos;
+            this.matched = matched;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        public double getParallelMillis() {
+            return parallelNanos / 1e6;
+        }
+
+        public double getSequentialMillis() {
+            return sequentialNanos / 1e6;
+        }
+
+        /**
+         * Time of the SQL query, or NaN when it was not run
+         */
+        public double getSqlMillis() {
+            return sqlNanos < 0 ? Double.NaN : sqlNanos / 1e6;
+        }
+
+        /**
+         * Whether the columns and the database gave the same answer
+         */
+        public boolean isMatched() {
+            return matched;
+        }
+
+        @Override
+        public String toString() {
+            String line = String.format("%-32s columnar %9.2f ms (1 thread %9.2f ms)", query, getParallelMillis(),
+                    getSequentialMillis());
+            if (sqlNanos < 0) {
+                return line;
+            }
+            return line + String.format("  SQL %10.2f ms  %7.1fx  %s", getSqlMillis(),
+                    parallelNanos == 0 ? 0 : (double) sqlNanos / parallelNanos, matched ? "match" : "MISMATCH");
+        }
+    }
+
+    private final TempColumns columns;
+    private final int repetitions;
+
+    public TempAnalyzer(TempColumns columns, int repetitions) {
+        if (repetitions < 1) {
+            throw new IllegalArgumentException("Repetitions must be positive");
+        }
+        this.columns = columns;
+        this.repetitions = repetitions;
+    }
+
+    /**
+     * Compares summary, filtered summary, range count and histogram queries, logging one
+     * line per query. The connection must see the rows the columns were loaded from;
+     * with a null connection the SQL side is skipped.
+     */
+    public Result[] compare(Connection connection, int buckets, Consumer<String> log) throws SQLException {
+        TempColumns.Column column = TempColumns.Column.NUM1;
+        TempColumns.Column filter = TempColumns.Column.NUM2;
+        log.accept(String.format("Columnar analysis: %,d rows, %.1f MB in memory, parallelism %d, best of %d",
+                columns.size(), columns.getMemoryBytes() / 1e6, ForkJoinPool.commonPool().getParallelism(),
+                repetitions));
+
+        // Ranges follow the data, so every distribution exercises the middle of its values
+        TempColumns.Summary range = columns.summarize(filter);
+        double low = range.getMin() + (range.getMax() - range.getMin()) / 4;
+        double high = range.getMax() - (range.getMax() - range.getMin()) / 4;
+        TempColumns.Summary spread = columns.summarize(column);
+
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            Result[] results = {
+                measure("sum/avg/min/max " + column.getName(), single,
+                        () -> columns.summarize(column),
+                        connection == null ? null : () -> TempColumns.querySummary(connection, column)),
+                measure("same where " + filter.getName() + " in middle half", single,
+                        () -> columns.summarize(column, filter, low, high),
+                        connection == null ? null
+                                : () -> TempColumns.querySummary(connection, column, filter, low, high)),
+                measure("count where " + filter.getName() + " in middle half", single,
+                        () -> columns.count(filter, low, high),
+                        connection == null ? null : () -> TempColumns.queryCount(connection, filter, low, high)),
+                measure(buckets + "-bucket histogram " + column.getName(), single,
+                        () -> columns.histogram(column, spread.getMin(), spread.getMax(), buckets),
+                        connection == null ? null : () -> TempColumns.queryHistogram(connection, column,
+                                spread.getMin(), spread.getMax(), buckets))
+            };
+            for (Result result : results) {
+                log.accept(result.toString());
+            }
+            return results;
+        } finally {
+            single.shutdown();
+            columns.setPool(ForkJoinPool.commonPool());
+        }
+    }
+
+    private <T> Result measure(String name, ForkJoinPool single, Query<T> inMemory, Query<T> sql)
+            throws SQLException {
+        columns.setPool(ForkJoinPool.commonPool());
+        Object[] parallel = new Object[1];
+        long parallelNanos = best(inMemory, parallel);
+        columns.setPool(single);
+        long sequentialNanos = best(inMemory, new Object[1]);
+        if (sql == null) {
+            return new Result(name, parallelNanos, sequentialNanos, -1, true);
+        }
+        Object[] database = new Object[1];
+        long sqlNanos = best(sql, database);
+        return new Result(name, parallelNanos, sequentialNanos, sqlNanos, same(parallel[0], database[0]));
+    }
+
+    /**
+     * Shortest of the repeated runs, keeping the last answer
+     */
+    private <T> long best(Query<T> query, Object[] answer) throws SQLException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < repetitions; i++) {
+            long start = System.nanoTime();
+            answer[0] = query.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static boolean same(Object columnar, Object database) {
+        if (columnar instanceof TempColumns.Summary) {
+            TempColumns.Summary a = (TempColumns.Summary) columnar;
+            TempColumns.Summary b = (TempColumns.Summary) database;
+            return a.getCount() == b.getCount()
+                    && Math.abs(a.getSum() - b.getSum()) <= SUM_TOLERANCE * Math.max(1, Math.abs(a.getSum()))
+                    && (a.getCount() == 0 || (a.getMin() == b.getMin() && a.getMax() == b.getMax()));
+        }
+        return columnar.equals(database);
+    }
+}
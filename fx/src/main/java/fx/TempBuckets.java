@@ -0,0 +1,355 @@
+package fx;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+/**
+ * A fixed number of min/max buckets over a range of Temp rows, for charting tables far
+ * larger than the number of points a chart can draw. Rows are positioned by id, Temp's
+ * AUTO_INCREMENT primary key, so any range of rows is an index range scan read in id
+ * order; ids skipped by rolled back or interleaved inserts are empty. Each bucket
+ * keeps, per column, the minimum and maximum with the rows they came from, and the sum
+ * and count for the mean, so memory depends on the bucket count and not on the rows.
+ *
+ * {@link #downsample} merges the buckets in a view into one bucket per pixel and emits
+ * each pixel's minimum and maximum in row order, so spikes survive however far the
+ * chart is zoomed out. Once a pixel holds fewer rows than a bucket, the range has to be
+ * scanned again into a finer set of buckets; {@link #covers} tells when.
+ */
+public class TempBuckets {
+
+    public static final int DEFAULT_BUCKETS = 1 << 16;
+
+    // Rows between checks for cancellation, and between progress reports (about a million)
+    private static final int CHECK_INTERVAL_ROWS = 4096;
+    private static final int PROGRESS_INTERVAL_ROWS = CHECK_INTERVAL_ROWS * 256;
+
+    private static final int COLUMNS = TempColumns.Column.values().length;
+
+    private static final String RANGE_SQL =
+            "SELECT id, num1, num2, num3 FROM Temp WHERE id >= ? AND id < ? ORDER BY id";
+
+    /**
+     * Points of one column in a view: the envelope of per-pixel minimums and maximums in
+     * row order, and the per-pixel mean
+     */
+    public static final class Series {
+        private final double[] envelopeRows;
+        private final double[] envelopeValues;
+        private final int envelopeSize;
+        private final double[] meanRows;
+        private final double[] meanValues;
+        private final int meanSize;
+        private final long rowsInView;
+
+        Series(double[] envelopeRows, double[] envelopeValues, int envelopeSize, double[] meanRows,
+                double[] meanValues, int meanSize, long rowsInView) {
+            this.envelopeRows = envelopeRows;
+            this.envelopeValues = envelopeValues;
+            this.envelopeSize = envelopeSize;
+            this.meanRows = meanRows;
+            this.meanValues = meanValues;
+            this.meanSize = meanSize;
+            this.rowsInView = rowsInView;
+        }
+
+        public int getEnvelopeSize() {
+            return envelopeSize;
+        }
+
+        public double getEnvelopeRow(int i) {
+            return envelopeRows[i];
+        }
+
+        public double getEnvelopeValue(int i) {
+            return envelopeValues[i];
+        }
+
+        public int getMeanSize() {
+            return meanSize;
+        }
+
+        public double getMeanRow(int i) {
+            return meanRows[i];
+        }
+
+        public double getMeanValue(int i) {
+            return meanValues[i];
+        }
+
+        /**
+         * Non-null values aggregated into the points
+         */
+        public long getRowsInView() {
+            return rowsInView;
+        }
+    }
+
+    private final long from;
+    private final long to;
+    private final int buckets;
+
+    // Indexed by column * buckets + bucket
+    private final double[] min;
+    private final double[] max;
+    private final long[] minRow;
+    private final long[] maxRow;
+    private final double[] sum;
+    private final long[] count;
+    private long rows;
+
+    /**
+     * Buckets over ids [from, to); a range of fewer ids than buckets gets one bucket per id
+     */
+    public TempBuckets(long from, long to, int buckets) {
+        if (from < 0 || to < from || buckets < 1) {
+            throw new IllegalArgumentException("Invalid row range or bucket count");
+        }
+        this.from = from;
+        this.to = to;
+        this.buckets = (int) Math.max(1, Math.min(buckets, to - from));
+        int size = COLUMNS * this.buckets;
+        min = new double[size];
+        max = new double[size];
+        minRow = new long[size];
+        maxRow = new long[size];
+        sum = new double[size];
+        count = new long[size];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * The ids of Temp as [first, last + 1), the range a full scan covers, or [0, 0) if
+     * it is empty. Both ends come from the primary key index.
+     */
+    public static long[] idRange(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT MIN(id), MAX(id) FROM Temp")) {
+            rs.next();
+            long first = rs.getLong(1);
+            return rs.wasNull() ? new long[] { 0, 0 } : new long[] { first, rs.getLong(2) + 1 };
+        }
+    }
+
+    /**
+     * Streams the rows of Temp with ids in [from, to) into buckets over that range.
+     * Returns null if cancelled returned true; it is polled every few thousand rows.
+     * Progress, if given, receives the rows read about every million rows.
+     */
+    public static TempBuckets scan(Connection connection, long from, long to, int buckets,
+            BooleanSupplier cancelled, LongConsumer progress) throws SQLException {
+        TempBuckets result = new TempBuckets(from, to, buckets);
+        boolean stopped = false;
+        try (PreparedStatement statement = connection.prepareStatement(RANGE_SQL, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY)) {
+            JdbcUtil.enableStreaming(statement);
+            statement.setLong(1, from);
+            statement.setLong(2, to);
+            try (ResultSet rs = statement.executeQuery()) {
+                long read = 0;
+                while (rs.next()) {
+                    result.add(rs.getLong(1), value(rs, 2), value(rs, 3), value(rs, 4));
+                    read++;
+                    if (read % CHECK_INTERVAL_ROWS == 0) {
+                        if (cancelled.getAsBoolean()) {
+                            stopped = true;
+                            break;
+                        }
+                        if (progress != null && read % PROGRESS_INTERVAL_ROWS == 0) {
+                            progress.accept(read);
+                        }
+                    }
+                }
+                if (stopped) {
+                    // Closing a streaming MySQL result set would read every remaining row first
+                    cancelQuietly(statement);
+                }
+            }
+        } catch (SQLException ex) {
+            // The cancelled query may fail as it is closed
+            if (!stopped) {
+                throw ex;
+            }
+        }
+        return stopped ? null : result;
+    }
+
+    private static double value(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? Double.NaN : value;
+    }
+
+    private static void cancelQuietly(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException ex) {
+            // Closing reads the rest of the rows instead
+        }
+    }
+
+    /**
+     * Adds the row with an id in the range; NULL values (NaN) are left out of their column
+     */
+    public void add(long row, double value1, double value2, double value3) {
+        if (row < from || row >= to) {
+            throw new IllegalArgumentException("Row " + row + " is outside [" + from + ", " + to + ")");
+        }
+        int bucket = bucketOf(row);
+        add(bucket, row, value1);
+        add(buckets + bucket, row, value2);
+        add(2 * buckets + bucket, row, value3);
+        rows++;
+    }
+
+    private void add(int index, long row, double value) {
+        if (value != value) {
+            return;
+        }
+        if (value < min[index]) {
+            min[index] = value;
+            minRow[index] = row;
+        }
+        if (value > max[index]) {
+            max[index] = value;
+            maxRow[index] = row;
+        }
+        sum[index] += value;
+        count[index]++;
+    }
+
+    private int bucketOf(long row) {
+        return (int) ((row - from) * buckets / (to - from));
+    }
+
+    /**
+     * First row of a bucket
+     */
+    private long bucketStart(int bucket) {
+        return from + ((long) bucket * (to - from) + buckets - 1) / buckets;
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public long getTo() {
+        return to;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * Rows added so far
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    public double getRowsPerBucket() {
+        return (double) (to - from) / buckets;
+    }
+
+    /**
+     * Bytes held by the bucket arrays, the same for any number of rows
+     */
+    public long getMemoryBytes() {
+        return (long) min.length * (Double.BYTES * 3 + Long.BYTES * 3);
+    }
+
+    /**
+     * Whether the view lies inside the range and a bucket holds no more rows than a pixel,
+     * so {@link #downsample} loses nothing a rescan would show
+     */
+    public boolean covers(long viewFrom, long viewTo, int width) {
+        return viewFrom >= from && viewTo <= to && viewTo > viewFrom
+                && getRowsPerBucket() <= Math.max(1.0, (double) (viewTo - viewFrom) / width);
+    }
+
+    /**
+     * Merges the buckets of rows [viewFrom, viewTo) into width pixels. Each pixel adds its
+     * minimum and maximum to the envelope, in the order they occur, and its mean. The
+     * buckets cut by the edges of the view count in full, so the first and last pixel
+     * can include up to a bucket of rows just outside it.
+     */
+    public Series downsample(TempColumns.Column column, long viewFrom, long viewTo, int width) {
+        if (width < 1) {
+            throw new IllegalArgumentException("Width must be positive");
+        }
+        long start = Math.max(viewFrom, from);
+        long end = Math.min(viewTo, to);
+        double[] envelopeRows = new double[2 * width];
+        double[] envelopeValues = new double[2 * width];
+        double[] meanRows = new double[width];
+        double[] meanValues = new double[width];
+        int envelopeSize = 0;
+        int meanSize = 0;
+        long inView = 0;
+        if (end <= start) {
+            return new Series(envelopeRows, envelopeValues, 0, meanRows, meanValues, 0, 0);
+        }
+
+        int offset = column.ordinal() * buckets;
+        long span = viewTo - viewFrom;
+        int bucket = bucketOf(start);
+        int lastBucket = bucketOf(end - 1);
+        while (bucket <= lastBucket) {
+            // The pixel a bucket belongs to is the one its first row in the view falls into
+            int pixel = pixelOf(Math.max(bucketStart(bucket), viewFrom), viewFrom, span, width);
+            double pixelMin = Double.POSITIVE_INFINITY;
+            double pixelMax = Double.NEGATIVE_INFINITY;
+            long pixelMinRow = 0;
+            long pixelMaxRow = 0;
+            double pixelSum = 0;
+            long pixelCount = 0;
+            while (bucket <= lastBucket
+                    && pixelOf(Math.max(bucketStart(bucket), viewFrom), viewFrom, span, width) == pixel) {
+                int index = offset + bucket;
+                if (count[index] > 0) {
+                    if (min[index] < pixelMin) {
+                        pixelMin = min[index];
+                        pixelMinRow = minRow[index];
+                    }
+                    if (max[index] > pixelMax) {
+                        pixelMax = max[index];
+                        pixelMaxRow = maxRow[index];
+                    }
+                    pixelSum += sum[index];
+                    pixelCount += count[index];
+                }
+                bucket++;
+            }
+            if (pixelCount == 0) {
+                continue;
+            }
+            inView += pixelCount;
+            if (pixelMinRow <= pixelMaxRow) {
+                envelopeRows[envelopeSize] = pixelMinRow;
+                envelopeValues[envelopeSize++] = pixelMin;
+            }
+            if (pixelMaxRow != pixelMinRow || pixelMax != pixelMin) {
+                envelopeRows[envelopeSize] = pixelMaxRow;
+                envelopeValues[envelopeSize++] = pixelMax;
+            }
+            if (pixelMinRow > pixelMaxRow) {
+                envelopeRows[envelopeSize] = pixelMinRow;
+                envelopeValues[envelopeSize++] = pixelMin;
+            }
+            meanRows[meanSize] = viewFrom + (pixel + 0.5) * span / width;
+            meanValues[meanSize++] = pixelSum / pixelCount;
+        }
+        return new Series(envelopeRows, envelopeValues, envelopeSize, meanRows, meanValues, meanSize, inView);
+    }
+
+    private static int pixelOf(long row, long viewFrom, long span, int width) {
+        return (int) Math.min(width - 1, (row - viewFrom) * width / span);
+    }
+}
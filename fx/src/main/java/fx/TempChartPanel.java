@@ -0,0 +1,262 @@
+package fx;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+
+/**
+ * Charts a Temp column against row id without loading the rows. The table is streamed
+ * once on a background thread into {@link TempBuckets}, and every redraw merges the
+ * buckets in view into one minimum, maximum and mean per pixel, so the chart never
+ * holds more than a few points per pixel whatever the row count. Zooming in past the
+ * resolution of those buckets streams just the ids around the view, a range scan of the
+ * primary key, into a finer set, which is kept for panning nearby.
+ *
+ * Scroll to zoom around the pointer and drag to pan.
+ */
+class TempChartPanel extends BorderPane {
+
+    // Zoom factor per scroll step or button press
+    private static final double ZOOM_STEP = 2;
+
+    // Finest view, in ids
+    private static final long MIN_SPAN = 16;
+
+    private final ConnectionPool pool;
+    private final NumberAxis xAxis = new NumberAxis();
+    private final NumberAxis yAxis = new NumberAxis();
+    private final LineChart<Number, Number> chart = new LineChart<>(xAxis, yAxis);
+    private final XYChart.Series<Number, Number> envelope = new XYChart.Series<>();
+    private final XYChart.Series<Number, Number> mean = new XYChart.Series<>();
+    private final ComboBox<TempColumns.Column> cbColumn = new ComboBox<>();
+    private final Label lblStatus = new Label("Loading Temp...");
+
+    // One worker, so a redraw never races the scan it depends on
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "temp-chart");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Buckets over the whole table, and finer ones around the last deep zoom
+    private volatile TempBuckets base;
+    private volatile TempBuckets detail;
+
+    // Incremented per redraw, so stale results and scans are dropped
+    private volatile int generation;
+
+    // Ids of the table, [firstId, endId)
+    private long firstId;
+    private long endId;
+    private long viewFrom;
+    private long viewTo;
+    private double dragX = Double.NaN;
+
+    TempChartPanel(ConnectionPool pool) {
+        this.pool = pool;
+
+        envelope.setName("min/max");
+        mean.setName("mean");
+        chart.getData().add(envelope);
+        chart.getData().add(mean);
+        chart.setCreateSymbols(false);
+        chart.setAnimated(false);
+        xAxis.setAutoRanging(false);
+        xAxis.setLabel("Row id");
+        yAxis.setForceZeroInRange(false);
+
+        cbColumn.getItems().addAll(TempColumns.Column.values());
+        cbColumn.setValue(TempColumns.Column.NUM1);
+        cbColumn.setOnAction(e -> redraw());
+        Button btZoomIn = new Button("Zoom In");
+        btZoomIn.setOnAction(e -> zoom(1 / ZOOM_STEP, (viewFrom + viewTo) / 2.0));
+        Button btZoomOut = new Button("Zoom Out");
+        btZoomOut.setOnAction(e -> zoom(ZOOM_STEP, (viewFrom + viewTo) / 2.0));
+        Button btReset = new Button("Reset");
+        btReset.setOnAction(e -> setView(firstId, endId));
+
+        chart.setOnScroll(e -> {
+            if (e.getDeltaY() != 0) {
+                zoom(e.getDeltaY() > 0 ? 1 / ZOOM_STEP : ZOOM_STEP, rowAt(e.getSceneX(), e.getSceneY()));
+            }
+        });
+        chart.setOnMousePressed(e -> dragX = e.getSceneX());
+        chart.setOnMouseDragged(e -> {
+            double rowsPerPixel = (viewTo - viewFrom) / Math.max(1, xAxis.getWidth());
+            long shift = Math.round((dragX - e.getSceneX()) * rowsPerPixel);
+            if (shift != 0) {
+                dragX = e.getSceneX();
+                long span = viewTo - viewFrom;
+                long start = Math.max(firstId, Math.min(endId - span, viewFrom + shift));
+                setView(start, start + span);
+            }
+        });
+        // A new width needs a different number of pixels
+        xAxis.widthProperty().addListener((obs, oldWidth, newWidth) -> redraw());
+
+        HBox toolbar = new HBox(10, new Label("Column:"), cbColumn, btZoomIn, btZoomOut, btReset, lblStatus);
+        toolbar.setAlignment(Pos.CENTER_LEFT);
+        toolbar.setPadding(new Insets(5));
+        setTop(toolbar);
+        setCenter(chart);
+
+        load();
+    }
+
+    /**
+     * Streams the whole table into the base buckets
+     */
+    private void load() {
+        int expected = ++generation;
+        worker.submit(() -> {
+            long start = System.nanoTime();
+            try (Connection connection = pool.getConnection()) {
+                long[] ids = TempBuckets.idRange(connection);
+                TempBuckets buckets = TempBuckets.scan(connection, ids[0], ids[1], TempBuckets.DEFAULT_BUCKETS,
+                        () -> false, read -> Platform.runLater(() -> lblStatus.setText(
+                                String.format("Loading Temp... %,d of at most %,d rows", read, ids[1] - ids[0]))));
+                double millis = (System.nanoTime() - start) / 1e6;
+                Platform.runLater(() -> {
+                    base = buckets;
+                    firstId = ids[0];
+                    endId = ids[1];
+                    lblStatus.setText(String.format("Streamed %,d rows into %,d buckets (%.1f MB) in %.0f ms",
+                            buckets.getRows(), buckets.getBuckets(), buckets.getMemoryBytes() / 1e6, millis));
+                    if (expected == generation) {
+                        setView(firstId, endId);
+                    }
+                });
+            } catch (SQLException ex) {
+                Platform.runLater(() -> lblStatus.setText("Failed to load Temp: " + ex.getMessage()));
+            }
+        });
+    }
+
+    private double rowAt(double sceneX, double sceneY) {
+        double x = xAxis.sceneToLocal(sceneX, sceneY).getX();
+        return xAxis.getValueForDisplay(x).doubleValue();
+    }
+
+    /**
+     * Scales the view around a row id, keeping that id under the same pixel
+     */
+    private void zoom(double factor, double anchor) {
+        long span = viewTo - viewFrom;
+        long ids = endId - firstId;
+        long newSpan = Math.max(Math.min(MIN_SPAN, ids), Math.min(ids, Math.round(span * factor)));
+        if (span == 0 || newSpan == span) {
+            return;
+        }
+        double fraction = (anchor - viewFrom) / span;
+        long start = Math.round(anchor - fraction * newSpan);
+        start = Math.max(firstId, Math.min(endId - newSpan, start));
+        setView(start, start + newSpan);
+    }
+
+    private void setView(long from, long to) {
+        viewFrom = from;
+        viewTo = to;
+        long span = Math.max(1, to - from);
+        xAxis.setLowerBound(from);
+        xAxis.setUpperBound(to);
+        xAxis.setTickUnit(Math.max(1, span / 10));
+        redraw();
+    }
+
+    /**
+     * Downsamples the view on the worker thread: from the base or detail buckets when they
+     * are fine enough, otherwise after streaming the ids around the view again
+     */
+    private void redraw() {
+        TempBuckets all = base;
+        if (all == null || viewTo <= viewFrom) {
+            return;
+        }
+        int width = (int) Math.max(50, xAxis.getWidth());
+        long from = viewFrom;
+        long to = viewTo;
+        TempColumns.Column column = cbColumn.getValue();
+        int expected = ++generation;
+
+        worker.submit(() -> {
+            if (expected != generation) {
+                return;
+            }
+            long start = System.nanoTime();
+            TempBuckets buckets = all;
+            String source = "base buckets";
+            if (!all.covers(from, to, width)) {
+                TempBuckets near = detail;
+                if (near == null || !near.covers(from, to, width)) {
+                    // A view's width of margin on each side keeps panning off the database
+                    long span = to - from;
+                    long scanFrom = Math.max(firstId, from - span);
+                    long scanTo = Math.min(endId, to + span);
+                    Platform.runLater(() -> lblStatus.setText(
+                            String.format("Streaming ids %,d to %,d...", scanFrom, scanTo)));
+                    try (Connection connection = pool.getConnection()) {
+                        near = TempBuckets.scan(connection, scanFrom, scanTo, TempBuckets.DEFAULT_BUCKETS,
+                                () -> expected != generation, null);
+                    } catch (SQLException ex) {
+                        Platform.runLater(() -> lblStatus.setText("Failed to stream Temp: " + ex.getMessage()));
+                        return;
+                    }
+                    if (near == null) {
+                        return;
+                    }
+                    detail = near;
+                    source = "rescan";
+                } else {
+                    source = "detail buckets";
+                }
+                buckets = near;
+            }
+            TempBuckets.Series series = buckets.downsample(column, from, to, width);
+            double millis = (System.nanoTime() - start) / 1e6;
+            String used = source;
+            Platform.runLater(() -> {
+                if (expected == generation) {
+                    show(series, String.format("%,d ids in view as %,d points from %s in %.1f ms",
+                            to - from, series.getEnvelopeSize() + series.getMeanSize(), used, millis));
+                }
+            });
+        });
+    }
+
+    private void show(TempBuckets.Series series, String status) {
+        long start = System.nanoTime();
+        List<XYChart.Data<Number, Number>> envelopePoints = new ArrayList<>(series.getEnvelopeSize());
+        for (int i = 0; i < series.getEnvelopeSize(); i++) {
+            envelopePoints.add(new XYChart.Data<>(series.getEnvelopeRow(i), series.getEnvelopeValue(i)));
+        }
+        List<XYChart.Data<Number, Number>> meanPoints = new ArrayList<>(series.getMeanSize());
+        for (int i = 0; i < series.getMeanSize(); i++) {
+            meanPoints.add(new XYChart.Data<>(series.getMeanRow(i), series.getMeanValue(i)));
+        }
+        envelope.getData().setAll(envelopePoints);
+        mean.getData().setAll(meanPoints);
+        lblStatus.setText(String.format("%s, chart updated in %.1f ms", status, (System.nanoTime() - start) / 1e6));
+    }
+
+    /**
+     * Stops the worker and any scan in progress
+     */
+    void close() {
+        generation++;
+        worker.shutdownNow();
+    }
+}
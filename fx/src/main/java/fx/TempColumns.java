@@ -0,0 +1,640 @@
+package fx;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongConsumer;
+
+/**
+ * The Temp table held in memory column by column, as three primitive double arrays.
+ * A scan over one column reads contiguous memory with no boxing or per-row objects,
+ * and the aggregates split the rows into ranges that a fork-join pool scans in
+ * parallel, so sum, min, max, histograms and range filters over tens of millions of
+ * rows take milliseconds.
+ *
+ * SQL NULLs are stored as NaN and skipped by the aggregates, as SQL skips them.
+ * Each aggregate has a SQL counterpart run against the table, for comparison; both
+ * sides use the same bucket arithmetic, so histograms match exactly.
+ */
+public class TempColumns {
+
+    /**
+     * The columns of Temp
+     */
+    public enum Column {
+        NUM1("num1"), NUM2("num2"), NUM3("num3");
+
+        private final String name;
+
+        Column(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    // Rows one fork-join leaf scans; smaller ranges cost more in task overhead than they save
+    static final int SPLIT_THRESHOLD = 1 << 16;
+
+    // Largest array the JVM reliably allocates
+    public static final int MAX_ROWS = Integer.MAX_VALUE - 8;
+
+    // Rows between progress reports while loading
+    private static final int PROGRESS_INTERVAL_ROWS = 1_000_000;
+
+    // Rows generated per block before they are split into the columns
+    private static final int GENERATE_BLOCK_ROWS = 4096;
+
+    /**
+     * Count, sum, minimum and maximum of the non-null values of a column
+     */
+    public static final class Summary {
+        private final long count;
+        private final double sum;
+        private final double min;
+        private final double max;
+
+        Summary(long count, double sum, double min, double max) {
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getSum() {
+            return sum;
+        }
+
+        /**
+         * The smallest value, or NaN when there are none
+         */
+        public double getMin() {
+            return count == 0 ? Double.NaN : min;
+        }
+
+        public double getMax() {
+            return count == 0 ? Double.NaN : max;
+        }
+
+        public double getAverage() {
+            return count == 0 ? Double.NaN : sum / count;
+        }
+
+        private Summary merge(Summary other) {
+            return new Summary(count + other.count, sum + other.sum, Math.min(min, other.min),
+                    Math.max(max, other.max));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%,d sum=%.6f avg=%.6f min=%.6f max=%.6f", count, sum, getAverage(),
+                    getMin(), getMax());
+        }
+    }
+
+    /**
+     * Counts of the values falling into equal-width buckets between low and high. Values
+     * equal to high go into the last bucket; values outside the range are not counted.
+     */
+    public static final class Histogram {
+        private final double low;
+        private final double high;
+        private final long[] counts;
+
+        Histogram(double low, double high, long[] counts) {
+            this.low = low;
+            this.high = high;
+            this.counts = counts;
+        }
+
+        public double getLow() {
+            return low;
+        }
+
+        public double getHigh() {
+            return high;
+        }
+
+        public int getBuckets() {
+            return counts.length;
+        }
+
+        public long getCount(int bucket) {
+            return counts[bucket];
+        }
+
+        public long getTotal() {
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            return total;
+        }
+
+        /**
+         * Lower bound of a bucket
+         */
+        public double getBucketStart(int bucket) {
+            return low + bucket * ((high - low) / counts.length);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Histogram)) {
+                return false;
+            }
+            Histogram histogram = (Histogram) other;
+            return low == histogram.low && high == histogram.high && Arrays.equals(counts, histogram.counts);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(counts);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d buckets over [%s, %s], total=%,d", counts.length, low, high, getTotal());
+        }
+    }
+
+    private double[] num1;
+    private double[] num2;
+    private double[] num3;
+    private int size;
+
+    // NULLs per column; scans of columns without any take a branch-free path
+    private final int[] nulls = new int[3];
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    public TempColumns(int capacity) {
+        if (capacity < 0 || capacity > MAX_ROWS) {
+            throw new IllegalArgumentException("Capacity must be between 0 and " + MAX_ROWS);
+        }
+        num1 = new double[capacity];
+        num2 = new double[capacity];
+        num3 = new double[capacity];
+    }
+
+    /**
+     * Fills the columns straight from the generator, without a database. The values are
+     * the ones inserting the same number of rows from the same generator would store.
+     */
+    public static TempColumns generate(DataGenerator generator, int rows) {
+        TempColumns columns = new TempColumns(rows);
+        double[] block = new double[GENERATE_BLOCK_ROWS * 3];
+        for (int offset = 0; offset < rows; offset += GENERATE_BLOCK_ROWS) {
+            int blockRows = Math.min(GENERATE_BLOCK_ROWS, rows - offset);
+            generator.fill(block, blockRows * 3);
+            for (int i = 0; i < blockRows * 3; i += 3) {
+                columns.add(block[i], block[i + 1], block[i + 2]);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Streams every row of Temp into a new store. The table is counted first so the
+     * arrays are allocated once at their final size. Progress, if given, receives the
+     * rows loaded so far every million rows.
+     */
+    public static TempColumns load(Connection connection, LongConsumer progress) throws SQLException {
+        long expected;
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM Temp")) {
+            rs.next();
+            expected = rs.getLong(1);
+        }
+        if (expected > MAX_ROWS) {
+            throw new SQLException("Temp has " + expected + " rows, more than " + MAX_ROWS + " fit in memory");
+        }
+
+        TempColumns columns = new TempColumns((int) expected);
+        try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY)) {
+            JdbcUtil.enableStreaming(statement);
+            try (ResultSet rs = statement.executeQuery("SELECT num1, num2, num3 FROM Temp")) {
+                while (rs.next()) {
+                    columns.add(value(rs, 1), value(rs, 2), value(rs, 3));
+                    if (progress != null && columns.size % PROGRESS_INTERVAL_ROWS == 0) {
+                        progress.accept(columns.size);
+                    }
+                }
+            }
+        }
+        return columns;
+    }
+
+    private static double value(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? Double.NaN : value;
+    }
+
+    /**
+     * Appends a row, growing the arrays if rows were inserted after the table was counted
+     */
+    public void add(double value1, double value2, double value3) {
+        if (size == num1.length) {
+            if (size == MAX_ROWS) {
+                throw new IllegalStateException("More than " + MAX_ROWS + " rows");
+            }
+            int capacity = (int) Math.min(MAX_ROWS, Math.max(16L, size + (long) (size >> 1)));
+            num1 = Arrays.copyOf(num1, capacity);
+            num2 = Arrays.copyOf(num2, capacity);
+            num3 = Arrays.copyOf(num3, capacity);
+        }
+        num1[size] = value1;
+        num2[size] = value2;
+        num3[size] = value3;
+        countNull(0, value1);
+        countNull(1, value2);
+        countNull(2, value3);
+        size++;
+    }
+
+    private void countNull(int column, double value) {
+        if (value != value) {
+            nulls[column]++;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Number of SQL NULLs in the column
+     */
+    public int getNullCount(Column column) {
+        return nulls[column.ordinal()];
+    }
+
+    /**
+     * The value at a row, NaN for SQL NULL
+     */
+    public double get(Column column, int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        return values(column)[row];
+    }
+
+    /**
+     * Bytes held by the three arrays
+     */
+    public long getMemoryBytes() {
+        return 3L * num1.length * Double.BYTES;
+    }
+
+    /**
+     * The pool that runs the scans, the common pool by default; a pool with parallelism 1
+     * scans on a single thread
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    private boolean hasNulls(Column column) {
+        return nulls[column.ordinal()] > 0;
+    }
+
+    private double[] values(Column column) {
+        switch (column) {
+            case NUM1:
+                return num1;
+            case NUM2:
+                return num2;
+            default:
+                return num3;
+        }
+    }
+
+    /**
+     * SELECT COUNT(c), SUM(c), MIN(c), MAX(c) FROM Temp
+     */
+    public Summary summarize(Column column) {
+        return pool.invoke(new SummaryTask(values(column), null, 0, 0, hasNulls(column), 0, size));
+    }
+
+    /**
+     * The summary of the rows whose filter column is between low and high inclusive,
+     * as in SELECT ... FROM Temp WHERE f BETWEEN low AND high
+     */
+    public Summary summarize(Column column, Column filter, double low, double high) {
+        return pool.invoke(new SummaryTask(values(column), values(filter), low, high,
+                hasNulls(column) || hasNulls(filter), 0, size));
+    }
+
+    /**
+     * Number of rows whose column is between low and high inclusive
+     */
+    public long count(Column filter, double low, double high) {
+        return pool.invoke(new CountTask(values(filter), low, high, 0, size));
+    }
+
+    /**
+     * Counts the values of the column in equal-width buckets over [low, high]
+     */
+    public Histogram histogram(Column column, double low, double high, int buckets) {
+        checkHistogram(low, high, buckets);
+        long[] counts = pool.invoke(new HistogramTask(values(column), low, (high - low) / buckets, high, buckets,
+                0, size));
+        return new Histogram(low, high, counts);
+    }
+
+    private static void checkHistogram(double low, double high, int buckets) {
+        if (buckets < 1 || !(low < high)) {
+            throw new IllegalArgumentException("Need at least one bucket and low < high");
+        }
+    }
+
+    /**
+     * Bucket of a value inside [low, high], the same arithmetic the SQL histogram uses
+     */
+    private static int bucket(double value, double low, double width, int buckets) {
+        return (int) Math.min(Math.floor((value - low) / width), buckets - 1);
+    }
+
+    /**
+     * Summarizes values[from .. to - 1], skipping NaN and, with a filter, rows outside it
+     */
+    private static final class SummaryTask extends RecursiveTask<Summary> {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] values;
+        private final double[] filter;
+        private final double low;
+        private final double high;
+        private final boolean nulls;
+        private final int from;
+        private final int to;
+
+        SummaryTask(double[] values, double[] filter, double low, double high, boolean nulls, int from, int to) {
+            this.values = values;
+            this.filter = filter;
+            this.low = low;
+            this.high = high;
+            this.nulls = nulls;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Summary compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                SummaryTask left = new SummaryTask(values, filter, low, high, nulls, from, middle);
+                left.fork();
+                Summary right = new SummaryTask(values, filter, low, high, nulls, middle, to).compute();
+                return left.join().merge(right);
+            }
+            if (nulls) {
+                return scanWithNulls();
+            }
+            return filter == null ? scan() : scanFiltered();
+        }
+
+        private Summary scan() {
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                double value = values[i];
+                sum += value;
+                // Plain comparisons; Math.min also orders -0.0 and NaN, which costs a branch more
+                if (value < min) {
+                    min = value;
+                }
+                if (value > max) {
+                    max = value;
+                }
+            }
+            return new Summary(to - from, sum, min, max);
+        }
+
+        /**
+         * A filter that keeps about half the rows would mispredict a branch on every other
+         * row, so the test is turned into a 0 or 1 from the sign bits of key - low and
+         * high - key, both non-negative exactly when the key is in range. Only correct
+         * without NaN, which has no meaningful sign.
+         */
+        private Summary scanFiltered() {
+            long count = 0;
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                double value = values[i];
+                double key = filter[i];
+                long keep = ((Double.doubleToRawLongBits(key - low) | Double.doubleToRawLongBits(high - key)) >>> 63)
+                        ^ 1;
+                count += keep;
+                sum += value * keep;
+                // Rarely true once a few values are seen, so these branches predict well
+                if (keep != 0 & value < min) {
+                    min = value;
+                }
+                if (keep != 0 & value > max) {
+                    max = value;
+                }
+            }
+            return new Summary(count, sum, min, max);
+        }
+
+        private Summary scanWithNulls() {
+            long count = 0;
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                double value = values[i];
+                // NaN fails every comparison, so NULL values and NULL filter values drop out here
+                if (value != value || (filter != null && !(filter[i] >= low && filter[i] <= high))) {
+                    continue;
+                }
+                count++;
+                sum += value;
+                if (value < min) {
+                    min = value;
+                }
+                if (value > max) {
+                    max = value;
+                }
+            }
+            return new Summary(count, sum, min, max);
+        }
+    }
+
+    /**
+     * Counts the values in [low, high] among values[from .. to - 1]. NaN never counts and
+     * needs no special case here, as no sign trick is involved.
+     */
+    private static final class CountTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] values;
+        private final double low;
+        private final double high;
+        private final int from;
+        private final int to;
+
+        CountTask(double[] values, double low, double high, int from, int to) {
+            this.values = values;
+            this.low = low;
+            this.high = high;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                CountTask left = new CountTask(values, low, high, from, middle);
+                left.fork();
+                long right = new CountTask(values, low, high, middle, to).compute();
+                return left.join() + right;
+            }
+            long count = 0;
+            for (int i = from; i < to; i++) {
+                double value = values[i];
+                // Non-short-circuit, so the JIT can count without a branch per row
+                count += (value >= low & value <= high) ? 1 : 0;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Bucket counts of values[from .. to - 1]
+     */
+    private static final class HistogramTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] values;
+        private final double low;
+        private final double width;
+        private final double high;
+        private final int buckets;
+        private final int from;
+        private final int to;
+
+        HistogramTask(double[] values, double low, double width, double high, int buckets, int from, int to) {
+            this.values = values;
+            this.low = low;
+            this.width = width;
+            this.high = high;
+            this.buckets = buckets;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                HistogramTask left = new HistogramTask(values, low, width, high, buckets, from, middle);
+                left.fork();
+                long[] counts = new HistogramTask(values, low, width, high, buckets, middle, to).compute();
+                long[] other = left.join();
+                for (int b = 0; b < buckets; b++) {
+                    counts[b] += other[b];
+                }
+                return counts;
+            }
+            long[] counts = new long[buckets];
+            for (int i = from; i < to; i++) {
+                double value = values[i];
+                if (value >= low && value <= high) {
+                    counts[bucket(value, low, width, buckets)]++;
+                }
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * The same summary computed by the database
+     */
+    public static Summary querySummary(Connection connection, Column column) throws SQLException {
+        String c = column.getName();
+        String sql = "SELECT COUNT(" + c + "), SUM(" + c + "), MIN(" + c + "), MAX(" + c + ") FROM Temp";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            return readSummary(statement);
+        }
+    }
+
+    /**
+     * The same filtered summary computed by the database
+     */
+    public static Summary querySummary(Connection connection, Column column, Column filter, double low,
+            double high) throws SQLException {
+        String c = column.getName();
+        String sql = "SELECT COUNT(" + c + "), SUM(" + c + "), MIN(" + c + "), MAX(" + c + ") FROM Temp WHERE "
+                + filter.getName() + " BETWEEN ? AND ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setDouble(1, low);
+            statement.setDouble(2, high);
+            return readSummary(statement);
+        }
+    }
+
+    private static Summary readSummary(PreparedStatement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            return new Summary(rs.getLong(1), rs.getDouble(2), rs.getDouble(3), rs.getDouble(4));
+        }
+    }
+
+    /**
+     * The same count computed by the database
+     */
+    public static long queryCount(Connection connection, Column filter, double low, double high)
+            throws SQLException {
+        String sql = "SELECT COUNT(*) FROM Temp WHERE " + filter.getName() + " BETWEEN ? AND ?";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setDouble(1, low);
+            statement.setDouble(2, high);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * The same histogram computed by the database with GROUP BY over the bucket number
+     */
+    public static Histogram queryHistogram(Connection connection, Column column, double low, double high,
+            int buckets) throws SQLException {
+        checkHistogram(low, high, buckets);
+        String c = column.getName();
+        String sql = "SELECT LEAST(FLOOR((" + c + " - ?) / ?), ?) AS bucket, COUNT(*) FROM Temp WHERE " + c
+                + " BETWEEN ? AND ? GROUP BY bucket";
+        long[] counts = new long[buckets];
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setDouble(1, low);
+            statement.setDouble(2, (high - low) / buckets);
+            statement.setInt(3, buckets - 1);
+            statement.setDouble(4, low);
+            statement.setDouble(5, high);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    counts[rs.getInt(1)] = rs.getLong(2);
+                }
+            }
+        }
+        return new Histogram(low, high, counts);
+    }
+}
@@ -0,0 +1,184 @@
+package fx;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+
+/**
+ * Loads each FXML view once and keeps its root node and controller, so switching
+ * back to a view reuses the same graph instead of parsing the FXML again.
+ * Views can be preloaded on a background thread; FXMLLoader only builds nodes
+ * that are not yet part of a scene, so this is safe off the JavaFX thread.
+ * Switch times are recorded per view, split into the first (loading) switch and
+ * later (cached) ones.
+ */
+public class ViewRegistry {
+
+    /**
+     * A loaded view: the root of its scene graph and its controller
+     */
+    public static final class View {
+        private final String name;
+        private final Parent root;
+        private final Object controller;
+        private final long loadNanos;
+
+        View(String name, Parent root, Object controller, long loadNanos) {
+            this.name = name;
+            this.root = root;
+            this.controller = controller;
+            this.loadNanos = loadNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Parent getRoot() {
+            return root;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T getController() {
+            return (T) controller;
+        }
+
+        public double getLoadMillis() {
+            return loadNanos / 1e6;
+        }
+    }
+
+    /**
+     * Switch times of one view
+     */
+    private static final class SwitchStats {
+        private final LongAdder cachedCount = new LongAdder();
+        private final LongAdder cachedNanos = new LongAdder();
+        private volatile long firstNanos = -1;
+    }
+
+    private final Class<?> anchor;
+
+    // One task per view, so a preload and a switch to the same view share a single load
+    private final ConcurrentHashMap<String, FutureTask<View>> views = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SwitchStats> switches = new ConcurrentHashMap<>();
+
+    /**
+     * Views are resolved as "name.fxml" relative to the anchor class
+     */
+    public ViewRegistry(Class<?> anchor) {
+        this.anchor = anchor;
+    }
+
+    /**
+     * The cached view, loading it on the calling thread if nobody has yet
+     */
+    public View get(String name) throws IOException {
+        FutureTask<View> task = views.get(name);
+        if (task == null) {
+            FutureTask<View> created = new FutureTask<>(() -> load(name));
+            task = views.putIfAbsent(name, created);
+            if (task == null) {
+                task = created;
+                created.run();
+            }
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + name, ex);
+        } catch (ExecutionException ex) {
+            // Forget the failure so the next attempt loads again
+            views.remove(name, task);
+            Throwable cause = ex.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Whether the view has finished loading
+     */
+    public boolean isLoaded(String name) {
+        FutureTask<View> task = views.get(name);
+        return task != null && task.isDone();
+    }
+
+    private View load(String name) throws IOException {
+        long start = System.nanoTime();
+        FXMLLoader loader = new FXMLLoader(anchor.getResource(name + ".fxml"));
+        Parent root = loader.load();
+        return new View(name, root, loader.getController(), System.nanoTime() - start);
+    }
+
+    /**
+     * Loads the views on a background daemon thread; load failures surface on the next {@link #get}
+     */
+    public void preload(String... names) {
+        Thread thread = new Thread(() -> {
+            for (String name : names) {
+                try {
+                    get(name);
+                } catch (IOException ex) {
+                    System.err.println("Failed to preload view " + name + ": " + ex.getMessage());
+                }
+            }
+        }, "view-preload");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Makes the view the root of the scene and records how long the switch took
+     */
+    public View show(Scene scene, String name) throws IOException {
+        long start = System.nanoTime();
+        boolean cached = isLoaded(name);
+        View view = get(name);
+        scene.setRoot(view.getRoot());
+        long nanos = System.nanoTime() - start;
+
+        SwitchStats stats = switches.computeIfAbsent(name, n -> new SwitchStats());
+        if (!cached && stats.firstNanos < 0) {
+            stats.firstNanos = nanos;
+        } else {
+            stats.cachedCount.increment();
+            stats.cachedNanos.add(nanos);
+        }
+        return view;
+    }
+
+    /**
+     * Load and switch times of every view, one line each
+     */
+    public String getStatistics() {
+        List<String> names = new ArrayList<>(views.keySet());
+        names.sort(null);
+        StringBuilder text = new StringBuilder();
+        for (String name : names) {
+            FutureTask<View> task = views.get(name);
+            String load = "loading";
+            if (task != null && task.isDone()) {
+                try {
+                    load = String.format("%.2f ms", task.get().getLoadMillis());
+                } catch (InterruptedException | ExecutionException ex) {
+                    load = "failed";
+                }
+            }
+            SwitchStats stats = switches.get(name);
+            long count = stats == null ? 0 : stats.cachedCount.sum();
+            text.append(String.format("view %s: load=%s firstSwitch=%s cachedSwitches=%d avgCachedSwitch=%.3f ms%n",
+                    name, load,
+                    stats == null || stats.firstNanos < 0 ? "-" : String.format("%.2f ms", stats.firstNanos / 1e6),
+                    count, count == 0 ? 0 : stats.cachedNanos.sum() / 1e6 / count));
+        }
+        return text.toString();
+    }
+}
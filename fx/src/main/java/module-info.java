@@ -1,7 +1,8 @@
 module fx {
-    requires javafx.controls;
+    requires transitive javafx.controls;
     requires javafx.fxml;
-    requires java.sql;
+    requires transitive java.sql;
+    requires java.prefs;
 
     opens fx to javafx.fxml;
     exports fx;